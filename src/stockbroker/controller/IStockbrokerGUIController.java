@@ -2,6 +2,7 @@ package stockbroker.controller;
 
 import java.io.IOException;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import stockbroker.view.IStockbrokerGUI;
 
@@ -37,6 +38,14 @@ public interface IStockbrokerGUIController {
    */
   void selectPortfolioHandler(String action);
 
+  /**
+   * Method is called once a portfolio is selected from the list, before the selected action is
+   * shown. Starts loading the price data of the stocks in the portfolio.
+   *
+   * @param portfolioName name of the selected portfolio.
+   */
+  void portfolioSelectedHandler(String portfolioName);
+
   /**
    * Method handles loading the portfolios from files.
    *
@@ -52,6 +61,14 @@ public interface IStockbrokerGUIController {
    */
   boolean validateStockSymbol(String symbol);
 
+  /**
+   * Method to suggest the stocks whose symbol or company name starts with the text typed so far.
+   *
+   * @param prefix text typed in the stock symbol field.
+   * @return suggestions as "symbol - name", empty if none match.
+   */
+  List<String> searchSymbols(String prefix);
+
   /**
    * Method provides the stocks and quantity values of a portfolio in a map. The parameters will be
    * validated before the map is generated.
@@ -4,8 +4,12 @@ import java.io.IOException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import stockbroker.model.IFlexStockbroker;
 import stockbroker.view.IStockbrokerGUI;
 
@@ -18,6 +22,9 @@ public class StockbrokerGUIController implements IStockbrokerGUIController {
 
   private IFlexStockbroker model;
   private IStockbrokerGUI view;
+  private static final int SYMBOL_SUGGESTIONS = 10;
+  private static final Logger LOGGER =
+      Logger.getLogger(StockbrokerGUIController.class.getName());
 
   /**
    * Constructor of the GUI controller.
@@ -116,6 +123,16 @@ public class StockbrokerGUIController implements IStockbrokerGUIController {
     view.selectPortfolio(model.listPortfolio(), action);
   }
 
+  @Override
+  public void portfolioSelectedHandler(String portfolioName) {
+    //prefetch is only an optimization, the selected action fetches what it needs
+    model.prefetchPortfolio(String.valueOf(model.getFileIndex(portfolioName)))
+        .exceptionally(e -> {
+          LOGGER.log(Level.WARNING, "Prefetch of portfolio " + portfolioName + " failed", e);
+          return null;
+        });
+  }
+
   @Override
   public void getStockQuantityMap(String date, String commissionFee, String amount) {
     String fileIndex = String.valueOf(model.getFileIndex(view.getPortfolioName()));
@@ -139,6 +156,16 @@ public class StockbrokerGUIController implements IStockbrokerGUIController {
     }
   }
 
+  @Override
+  public List<String> searchSymbols(String prefix) {
+    try {
+      return model.searchSymbols(prefix, SYMBOL_SUGGESTIONS);
+    } catch (Exception e) {
+      //no suggestions if the listing cannot be read, the symbol is still validated on submit
+      return new ArrayList<>();
+    }
+  }
+
   @Override
   public void stockTransactionHandler() {
     String fileIndex = String.valueOf(model.getFileIndex(view.getPortfolioName()));
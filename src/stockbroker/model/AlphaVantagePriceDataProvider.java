@@ -0,0 +1,80 @@
+package stockbroker.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.time.Duration;
+
+/**
+ * Price data provider fetching the data from the alphavantage API. A request that cannot connect,
+ * or stops sending data, fails after a timeout rather than holding its slot of the fetch scheduler
+ * for good.
+ */
+public class AlphaVantagePriceDataProvider implements PriceDataProvider {
+
+  private static final String BASE_URL = "https://www.alphavantage.co/query?";
+
+  private static final int FREE_REQUESTS_PER_MINUTE = 5;
+  private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+  //between two reads, a full history still takes as long as it needs
+  private static final Duration READ_TIMEOUT = Duration.ofSeconds(30);
+
+  private final String apiKey;
+  private final int requestsPerMinute;
+
+  /**
+   * Constructor of the alphavantage provider with the request limit of a free API key.
+   *
+   * @param apiKey key of the alphavantage API.
+   */
+  public AlphaVantagePriceDataProvider(String apiKey) {
+    this(apiKey, FREE_REQUESTS_PER_MINUTE);
+  }
+
+  /**
+   * Constructor of the alphavantage provider.
+   *
+   * @param apiKey            key of the alphavantage API.
+   * @param requestsPerMinute number of requests allowed in a minute for the key.
+   */
+  public AlphaVantagePriceDataProvider(String apiKey, int requestsPerMinute) {
+    this.apiKey = apiKey;
+    this.requestsPerMinute = requestsPerMinute;
+  }
+
+  private InputStream open(String query) throws IOException {
+    URL url;
+    try {
+      url = new URL(BASE_URL + query + "&datatype=csv&apikey=" + apiKey);
+    } catch (MalformedURLException e) {
+      throw new IOException("the alphavantage API has either changed or no longer works. " + e);
+    }
+    URLConnection connection = url.openConnection();
+    connection.setConnectTimeout((int) CONNECT_TIMEOUT.toMillis());
+    connection.setReadTimeout((int) READ_TIMEOUT.toMillis());
+    return connection.getInputStream();
+  }
+
+  @Override
+  public InputStream openDailySeries(String symbol, boolean full) throws IOException {
+    return open("function=TIME_SERIES_DAILY&outputsize=" + (full ? "full" : "compact")
+        + "&symbol=" + symbol);
+  }
+
+  @Override
+  public InputStream openQuote(String symbol) throws IOException {
+    return open("function=GLOBAL_QUOTE&symbol=" + symbol);
+  }
+
+  @Override
+  public InputStream openListing() throws IOException {
+    return open("function=LISTING_STATUS");
+  }
+
+  @Override
+  public int getRequestsPerMinute() {
+    return requestsPerMinute;
+  }
+}
@@ -0,0 +1,353 @@
+package stockbroker.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Price series backed by a compressed archive file. The trading days are split in to blocks of a
+ * fixed number of days. In a block the first day and price are stored as they are and the rest as
+ * differences from the previous day, as variable length integers, and the block is then deflated.
+ * The prices are stored as integers scaled by {@link #PRICE_SCALE}, that is to four decimal places.
+ *
+ * <pre>
+ * header : magic(int) version(int) symbol(16 bytes) rows(int) minDay(int) maxDay(int)
+ *          blockSize(int) blockCount(int)
+ * index  : per block firstDay(int) offset(int) length(int)
+ * blocks : deflated varints, per day zigzag(day - previousDay) zigzag(price - previousPrice)
+ * </pre>
+ *
+ * <p>A lookup by date finds the block from the index with a binary search and inflates only that
+ * block. The last inflated block is kept, so lookups of nearby dates do not inflate it again.
+ */
+public class ArchivedPriceSeries implements IPriceSeries {
+
+  static final int MAGIC = 0x53425041;
+  static final int VERSION = 1;
+  static final int SYMBOL_LENGTH = 16;
+  static final int HEADER_SIZE = 4 + 4 + SYMBOL_LENGTH + 4 + 4 + 4 + 4 + 4;
+  static final int INDEX_ENTRY_SIZE = 4 + 4 + 4;
+
+  /**
+   * Number of trading days in a block.
+   */
+  public static final int BLOCK_SIZE = 256;
+
+  /**
+   * Scale of the prices stored as integers.
+   */
+  public static final int PRICE_SCALE = 10000;
+
+  private static class Block {
+
+    private final int number;
+    private final int[] days;
+    private final double[] prices;
+
+    Block(int number, int[] days, double[] prices) {
+      this.number = number;
+      this.days = days;
+      this.prices = prices;
+    }
+  }
+
+  private final String symbol;
+  private final MappedBuffer buffer;
+  private final int rows;
+  private final int blockSize;
+  private final int blockCount;
+  private volatile Block lastBlock;
+
+  private ArchivedPriceSeries(String symbol, MappedBuffer buffer, int rows, int blockSize,
+      int blockCount) {
+    this.symbol = symbol;
+    this.buffer = buffer;
+    this.rows = rows;
+    this.blockSize = blockSize;
+    this.blockCount = blockCount;
+  }
+
+  /**
+   * Map an archive file in read only mode.
+   *
+   * @param file path to the archive file.
+   * @return the price series backed by the file.
+   * @throws IOException if the file cannot be read or is not a valid archive file.
+   */
+  public static ArchivedPriceSeries map(Path file) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_SIZE) {
+        throw new IOException("Invalid price archive: " + file);
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+          .order(ByteOrder.BIG_ENDIAN);
+    }
+
+    if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+      throw new IOException("Invalid price archive: " + file);
+    }
+    byte[] name = new byte[SYMBOL_LENGTH];
+    buffer.get(8, name);
+    int rows = buffer.getInt(8 + SYMBOL_LENGTH);
+    int blockSize = buffer.getInt(20 + SYMBOL_LENGTH);
+    int blockCount = buffer.getInt(24 + SYMBOL_LENGTH);
+    if (buffer.capacity() < HEADER_SIZE + (long) blockCount * INDEX_ENTRY_SIZE) {
+      throw new IOException("Truncated price archive: " + file);
+    }
+    return new ArchivedPriceSeries(new String(name, StandardCharsets.US_ASCII).trim(),
+        new MappedBuffer(buffer), rows, blockSize, blockCount);
+  }
+
+  /**
+   * Write a price series to an archive file that can later be mapped.
+   *
+   * @param series price series to write.
+   * @param file   path of the archive file.
+   * @throws IOException on file handling errors.
+   */
+  public static void write(IPriceSeries series, Path file) throws IOException {
+    int rows = series.size();
+    int blockCount = (rows + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    byte[][] blocks = new byte[blockCount][];
+    Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    try {
+      for (int b = 0; b < blockCount; b++) {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        int previousDay = 0;
+        long previousPrice = 0;
+        for (int i = b * BLOCK_SIZE; i < Math.min(rows, (b + 1) * BLOCK_SIZE); i++) {
+          long price = Math.round(series.getClosePriceAt(i) * PRICE_SCALE);
+          writeVarLong(raw, zigzag(series.getEpochDay(i) - previousDay));
+          writeVarLong(raw, zigzag(price - previousPrice));
+          previousDay = series.getEpochDay(i);
+          previousPrice = price;
+        }
+        blocks[b] = deflate(deflater, raw.toByteArray());
+      }
+    } finally {
+      deflater.end();
+    }
+
+    int size = HEADER_SIZE + blockCount * INDEX_ENTRY_SIZE;
+    for (byte[] block : blocks) {
+      size += block.length;
+    }
+    ByteBuffer out = ByteBuffer.allocate(size).order(ByteOrder.BIG_ENDIAN);
+    byte[] name = new byte[SYMBOL_LENGTH];
+    byte[] symbol = series.getSymbol().getBytes(StandardCharsets.US_ASCII);
+    System.arraycopy(symbol, 0, name, 0, Math.min(symbol.length, SYMBOL_LENGTH));
+    for (int i = symbol.length; i < SYMBOL_LENGTH; i++) {
+      name[i] = ' ';
+    }
+    out.putInt(MAGIC);
+    out.putInt(VERSION);
+    out.put(name);
+    out.putInt(rows);
+    out.putInt(rows == 0 ? 0 : series.getEpochDay(0));
+    out.putInt(rows == 0 ? 0 : series.getEpochDay(rows - 1));
+    out.putInt(BLOCK_SIZE);
+    out.putInt(blockCount);
+    int offset = HEADER_SIZE + blockCount * INDEX_ENTRY_SIZE;
+    for (int b = 0; b < blockCount; b++) {
+      out.putInt(series.getEpochDay(b * BLOCK_SIZE));
+      out.putInt(offset);
+      out.putInt(blocks[b].length);
+      offset += blocks[b].length;
+    }
+    for (byte[] block : blocks) {
+      out.put(block);
+    }
+    out.flip();
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (out.hasRemaining()) {
+        channel.write(out);
+      }
+    }
+  }
+
+  private static byte[] deflate(Deflater deflater, byte[] raw) {
+    deflater.reset();
+    deflater.setInput(raw);
+    deflater.finish();
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 16);
+    byte[] chunk = new byte[1024];
+    while (!deflater.finished()) {
+      int count = deflater.deflate(chunk);
+      compressed.write(chunk, 0, count);
+    }
+    return compressed.toByteArray();
+  }
+
+  private static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unzigzag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static void writeVarLong(ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  private Block block(int number) {
+    Block block = lastBlock;
+    if (block != null && block.number == number) {
+      return block;
+    }
+
+    int entry = HEADER_SIZE + number * INDEX_ENTRY_SIZE;
+    int offset = buffer.getInt(entry + 4);
+    int length = buffer.getInt(entry + 8);
+    int count = Math.min(blockSize, rows - number * blockSize);
+    //each day takes at most two varints of ten bytes
+    byte[] raw = new byte[count * 20];
+    int rawLength;
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(buffer.getBytes(offset, length));
+      rawLength = inflater.inflate(raw);
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Corrupt price archive for symbol: " + symbol, e);
+    } finally {
+      inflater.end();
+    }
+
+    int[] days = new int[count];
+    double[] prices = new double[count];
+    int position = 0;
+    int day = 0;
+    long price = 0;
+    for (int i = 0; i < count && position < rawLength; i++) {
+      long value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = raw[position++];
+        value |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      day += (int) unzigzag(value);
+
+      value = 0;
+      shift = 0;
+      do {
+        b = raw[position++];
+        value |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      price += unzigzag(value);
+
+      days[i] = day;
+      prices[i] = (double) price / PRICE_SCALE;
+    }
+
+    block = new Block(number, days, prices);
+    lastBlock = block;
+    return block;
+  }
+
+  //the block that would hold the epoch day, -1 if it is before the first day
+  private int blockOf(int epochDay) {
+    int low = 0;
+    int high = blockCount - 1;
+    int found = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (buffer.getInt(HEADER_SIZE + mid * INDEX_ENTRY_SIZE) <= epochDay) {
+        found = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return found;
+  }
+
+  private int indexOf(int epochDay) {
+    int number = blockOf(epochDay);
+    if (number < 0) {
+      return -1;
+    }
+    Block block = block(number);
+    int low = 0;
+    int high = block.days.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (block.days[mid] < epochDay) {
+        low = mid + 1;
+      } else if (block.days[mid] > epochDay) {
+        high = mid - 1;
+      } else {
+        return number * blockSize + mid;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public String getSymbol() {
+    return symbol;
+  }
+
+  @Override
+  public int size() {
+    return rows;
+  }
+
+  @Override
+  public int getEpochDay(int index) {
+    return block(index / blockSize).days[index % blockSize];
+  }
+
+  @Override
+  public double getClosePriceAt(int index) {
+    return block(index / blockSize).prices[index % blockSize];
+  }
+
+  @Override
+  public boolean hasPriceOn(LocalDate date) {
+    return indexOf((int) date.toEpochDay()) >= 0;
+  }
+
+  @Override
+  public double getClosePrice(LocalDate date) throws IllegalArgumentException {
+    int index = indexOf((int) date.toEpochDay());
+    if (index < 0) {
+      throw new IllegalArgumentException(
+          "Price data for symbol: " + symbol + " not found on " + date);
+    }
+    return getClosePriceAt(index);
+  }
+
+  @Override
+  public LocalDate getFirstDate() {
+    return rows == 0 ? null : LocalDate.ofEpochDay(buffer.getInt(12 + SYMBOL_LENGTH));
+  }
+
+  @Override
+  public LocalDate getLastDate() {
+    return rows == 0 ? null : LocalDate.ofEpochDay(buffer.getInt(16 + SYMBOL_LENGTH));
+  }
+
+  @Override
+  public void release() {
+    buffer.release();
+  }
+}
@@ -0,0 +1,174 @@
+package stockbroker.model;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Crash safe replacement of files shared between threads and processes. The new contents are
+ * written to a temporary file in the same directory, flushed to disk and renamed over the target,
+ * so a reader sees either the old or the new file and never a partial one. The new file gets the
+ * permissions of the file it replaces, or the default ones of the process for a new file. Writers
+ * of the same file take turns through a lock, which also holds across processes. Readers do not
+ * take any lock.
+ *
+ * <p>The files of a directory share one lock file in it, {@value #LOCK_FILE}, of which each file
+ * locks a single byte picked by its name, so writers of different files seldom wait for each
+ * other. The lock file is always empty and is left in place. Deleting it is not safe: a writer in
+ * another process may already have it open, and would hold its lock on the deleted file while a
+ * third writer locks a new one.
+ */
+public final class AtomicFiles {
+
+  /**
+   * Writes the new contents of a file.
+   */
+  public interface Writer {
+
+    /**
+     * Write the new contents to a temporary file.
+     *
+     * @param temp path of the temporary file, which already exists and is empty.
+     * @throws IOException on file handling errors.
+     */
+    void write(Path temp) throws IOException;
+  }
+
+  /**
+   * Changes a file in place while holding its lock.
+   *
+   * @param <T> type of the result.
+   */
+  public interface Locked<T> {
+
+    /**
+     * Change the file.
+     *
+     * @return result of the change.
+     * @throws IOException on file handling errors.
+     */
+    T run() throws IOException;
+  }
+
+  //a file lock is held by the whole process, threads of the process take turns on this one first
+  private static final class ThreadLock {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    //threads using or waiting for the lock, it is dropped from the map when none are left
+    private int users;
+  }
+
+  /**
+   * Name of the lock file of a directory.
+   */
+  public static final String LOCK_FILE = ".lock";
+
+  //by lock file and locked byte
+  private static final ConcurrentHashMap<String, ThreadLock> LOCKS = new ConcurrentHashMap<>();
+
+  private AtomicFiles() {
+  }
+
+  /**
+   * Replace the contents of a file atomically.
+   *
+   * @param target path of the file to replace, created if it does not exist.
+   * @param writer writes the new contents.
+   * @throws IOException on file handling errors, in which case the target is left unchanged.
+   */
+  public static void write(Path target, Writer writer) throws IOException {
+    Path absolute = target.toAbsolutePath().normalize();
+    locked(absolute, () -> {
+      Path temp = createTemp(absolute);
+      try {
+        writer.write(temp);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+          channel.force(true);
+        }
+        try {
+          Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE,
+              StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+      return null;
+    });
+  }
+
+  //create an empty temporary file next to the target, with the permissions the target has or
+  //else the default ones, where Files.createTempFile would make it readable by the owner only
+  private static Path createTemp(Path target) throws IOException {
+    Path temp;
+    while (true) {
+      temp = target.resolveSibling(target.getFileName() + "."
+          + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+      try {
+        Files.createFile(temp);
+        break;
+      } catch (FileAlreadyExistsException e) {
+        //try another name
+      }
+    }
+    PosixFileAttributeView permissions = Files.getFileAttributeView(target,
+        PosixFileAttributeView.class);
+    if (permissions != null) {
+      try {
+        Files.setPosixFilePermissions(temp, permissions.readAttributes().permissions());
+      } catch (NoSuchFileException e) {
+        //a new file keeps the default permissions
+      } catch (IOException e) {
+        Files.deleteIfExists(temp);
+        throw e;
+      }
+    }
+    return temp;
+  }
+
+  /**
+   * Change a file in place while holding the lock its atomic replacements take, for the writers
+   * that append to a file rather than replace it. The file must be opened inside the action, so
+   * that it is not a file replaced in the meantime.
+   *
+   * @param target path of the file to change.
+   * @param action changes the file.
+   * @param <T>    type of the result.
+   * @return result of the action.
+   * @throws IOException on file handling errors.
+   */
+  public static <T> T locked(Path target, Locked<T> action) throws IOException {
+    Path absolute = target.toAbsolutePath().normalize();
+    Path lockFile = absolute.resolveSibling(LOCK_FILE);
+    long position = absolute.getFileName().toString().hashCode() & 0x7fffffffL;
+    //files sharing a byte share the thread lock too, a process cannot lock a byte twice
+    String key = lockFile + "@" + position;
+    ThreadLock threadLock = LOCKS.compute(key, (name, held) -> {
+      ThreadLock used = held == null ? new ThreadLock() : held;
+      used.users++;
+      return used;
+    });
+
+    threadLock.lock.lock();
+    try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE)) {
+      //released when the channel is closed
+      lockChannel.lock(position, 1, false);
+      return action.run();
+    } finally {
+      threadLock.lock.unlock();
+      LOCKS.computeIfPresent(key, (name, held) -> --held.users == 0 ? null : held);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package stockbroker.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Downloads the responses of a price data provider. A response is either streamed straight into a
+ * file, or read line by line through a large buffer, so that the payload is never held as a whole
+ * in memory.
+ */
+public class Downloader {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final long CHUNK_SIZE = 1024 * 1024;
+
+  /**
+   * Stream the contents of an input stream into a file, replacing the file if it exists.
+   *
+   * @param in   stream to read from, it is not closed.
+   * @param dest path of the file to write.
+   * @return number of bytes written.
+   * @throws IOException on read or file handling errors.
+   */
+  public long toFile(InputStream in, Path dest) throws IOException {
+    ReadableByteChannel source = Channels.newChannel(in);
+    try (FileChannel out = FileChannel.open(dest, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      long position = 0;
+      long count;
+      while ((count = out.transferFrom(source, position, CHUNK_SIZE)) > 0) {
+        position += count;
+      }
+      return position;
+    }
+  }
+
+  /**
+   * Open a stream for reading line by line. Closing the reader closes the stream.
+   *
+   * @param in stream to read from.
+   * @return a buffered reader over the stream.
+   */
+  public BufferedReader openReader(InputStream in) {
+    return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+  }
+}
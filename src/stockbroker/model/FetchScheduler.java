@@ -0,0 +1,176 @@
+package stockbroker.model;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scheduler of the requests made to a price data provider. The requests are started no faster than
+ * the rate allowed by the provider, using a token bucket, and no more than a given number of them
+ * run at a time. Interactive requests are always started ahead of the waiting background requests,
+ * and requests of the same priority are started in the order they were submitted.
+ */
+public class FetchScheduler {
+
+  /**
+   * Priority of a request.
+   */
+  public enum Priority {
+    /**
+     * Request the user is waiting for.
+     */
+    INTERACTIVE,
+    /**
+     * Request made ahead of time or for a background task.
+     */
+    BACKGROUND
+  }
+
+  /**
+   * A request to the price data provider.
+   *
+   * @param <T> type of the result of the request.
+   */
+  public interface Fetch<T> {
+
+    /**
+     * Make the request.
+     *
+     * @return result of the request.
+     * @throws IOException on network or file handling errors.
+     */
+    T fetch() throws IOException;
+  }
+
+  private static class Task implements Comparable<Task> {
+
+    private final Priority priority;
+    private final long sequence;
+    private final Runnable body;
+
+    Task(Priority priority, long sequence, Runnable body) {
+      this.priority = priority;
+      this.sequence = sequence;
+      this.body = body;
+    }
+
+    @Override
+    public int compareTo(Task other) {
+      int byPriority = priority.compareTo(other.priority);
+      return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+    }
+  }
+
+  private final PriorityBlockingQueue<Task> queue = new PriorityBlockingQueue<>();
+  private final AtomicLong sequence = new AtomicLong();
+  private final Semaphore slots;
+  private final ExecutorService workers;
+  private final Thread dispatcher;
+
+  private final double tokensPerNano;
+  private final double capacity;
+  private double tokens;
+  private long lastRefill;
+
+  /**
+   * Constructor of the scheduler.
+   *
+   * @param requestsPerMinute maximum number of requests started in a minute.
+   * @param maxConcurrent     maximum number of requests running at a time.
+   */
+  public FetchScheduler(int requestsPerMinute, int maxConcurrent) {
+    if (requestsPerMinute <= 0 || maxConcurrent <= 0) {
+      throw new IllegalArgumentException("Request limits should be greater than 0");
+    }
+    this.tokensPerNano = requestsPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+    this.capacity = requestsPerMinute;
+    this.tokens = requestsPerMinute;
+    this.lastRefill = System.nanoTime();
+    this.slots = new Semaphore(maxConcurrent);
+    this.workers = Executors.newFixedThreadPool(maxConcurrent, runnable -> {
+      Thread thread = new Thread(runnable, "price-fetch");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.dispatcher = new Thread(this::dispatch, "price-fetch-dispatcher");
+    this.dispatcher.setDaemon(true);
+    this.dispatcher.start();
+  }
+
+  /**
+   * Submit a request for a symbol.
+   *
+   * @param symbol   symbol of the stock the request is for.
+   * @param priority priority of the request.
+   * @param fetch    the request to make.
+   * @param <T>      type of the result of the request.
+   * @return future completed with the result of the request, or with its error.
+   */
+  public <T> CompletableFuture<T> submit(String symbol, Priority priority, Fetch<T> fetch) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    queue.put(new Task(priority, sequence.getAndIncrement(), () -> {
+      try {
+        future.complete(fetch.fetch());
+      } catch (Exception e) {
+        future.completeExceptionally(e);
+      }
+    }));
+    return future;
+  }
+
+  /**
+   * Get the number of requests waiting to be started.
+   *
+   * @return number of waiting requests.
+   */
+  public int getQueueLength() {
+    return queue.size();
+  }
+
+  /**
+   * Stop the scheduler. Requests that have not started are abandoned.
+   */
+  public void shutdown() {
+    dispatcher.interrupt();
+    workers.shutdownNow();
+  }
+
+  private void dispatch() {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        //wait for work without committing to a request, a more urgent one may arrive meanwhile
+        queue.put(queue.take());
+        slots.acquire();
+        acquireToken();
+        Task task = queue.poll();
+        workers.execute(() -> {
+          try {
+            task.body.run();
+          } finally {
+            slots.release();
+          }
+        });
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void acquireToken() throws InterruptedException {
+    while (true) {
+      long now = System.nanoTime();
+      tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+      lastRefill = now;
+      if (tokens >= 1) {
+        tokens -= 1;
+        return;
+      }
+      TimeUnit.NANOSECONDS.sleep((long) Math.ceil((1 - tokens) / tokensPerNano));
+    }
+  }
+}
@@ -1,17 +1,16 @@
 package stockbroker.model;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
@@ -19,13 +18,24 @@ import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * The implementation for model of FlexStockbroker class. It contains all the functions to support
@@ -34,9 +44,65 @@ import java.util.Optional;
  */
 public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
 
+  private static final Logger LOGGER = Logger.getLogger(FlexStockbroker.class.getName());
+
   private double commissionFee;
   private Map<String, Double> stockQtyMap;
+  private final PortfolioCatalog catalog = PortfolioCatalog.forDirectory(
+      Path.of("flexPortfolios"));
+  //ledgers of the portfolios queried so far, by file name
+  private final Map<String, PortfolioLedger> ledgers = new HashMap<>();
+  //transactions added in the open batch, by file name
+  private final Map<String, List<TransactionJournal.Entry>> pendingTransactions =
+      new LinkedHashMap<>();
+  private int batchDepth;
+  //portfolios whose csv export fell behind the journal, by file name
+  private final Set<String> staleExports = new HashSet<>();
+  private final boolean syncJournal = Boolean.getBoolean("stockbroker.journalSync");
+  private final ExecutorService prefetchExecutor = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "price-prefetch");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Constructor of the flexible stockbroker with the default price data provider and the default
+   * price cache.
+   */
+  public FlexStockbroker() {
+    super();
+  }
 
+  /**
+   * Constructor of the flexible stockbroker with the default price data provider.
+   *
+   * @param priceCache cache holding the price series of the stocks looked up.
+   */
+  public FlexStockbroker(PriceSeriesCache priceCache) {
+    this(defaultPriceDataProvider(), priceCache);
+  }
+
+  /**
+   * Constructor of the flexible stockbroker.
+   *
+   * @param priceDataProvider source of the stock price data.
+   * @param priceCache        cache holding the price series of the stocks looked up.
+   */
+  public FlexStockbroker(PriceDataProvider priceDataProvider, PriceSeriesCache priceCache) {
+    this(priceDataProvider, defaultFetchScheduler(priceDataProvider), priceCache);
+  }
+
+  /**
+   * Constructor of the flexible stockbroker.
+   *
+   * @param priceDataProvider source of the stock price data.
+   * @param fetchScheduler    scheduler of the requests made to the price data provider.
+   * @param priceCache        cache holding the price series of the stocks looked up.
+   */
+  public FlexStockbroker(PriceDataProvider priceDataProvider, FetchScheduler fetchScheduler,
+      PriceSeriesCache priceCache) {
+    super(priceDataProvider, fetchScheduler, priceCache);
+  }
 
   private void setCommissionFee(double commissionFee) {
     this.commissionFee = commissionFee;
@@ -50,10 +116,6 @@ public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
     return stockQtyMap;
   }
 
-  private boolean checkCacheExists(String symbol) {
-    return Files.exists(Path.of("misc/" + symbol + ".csv"));
-  }
-
   private boolean checkPortfolioExists(String name) {
     return Files.exists(Path.of("flexPortfolios/" + name + ".csv"));
   }
@@ -62,52 +124,125 @@ public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
     return Files.exists(Path.of("dollarCostStrategy/" + name));
   }
 
+  private TransactionJournal getJournal(String filename) {
+    return new TransactionJournal(
+        Path.of("flexPortfolios", "journal", filename.replaceFirst("\\.csv$", "") + ".jnl"));
+  }
 
-  private void updateCache(String symbol) throws IOException {
-    this.cacheStockDetails(symbol);
+  private PortfolioLedger loadLedger(String filename) throws IOException {
+    TransactionJournal journal = getJournal(filename);
+    //once a portfolio has a journal, the csv file is only an export of it
+    Path file = journal.exists() ? journal.getFile() : Path.of("flexPortfolios", filename);
+    PortfolioLedger ledger = ledgers.get(filename);
+    //read the file again only if it was changed outside the model
+    if (ledger == null || !ledger.isCurrent(file)) {
+      ledger = journal.exists() ? journal.readLedger() : PortfolioLedger.read(file);
+      ledgers.put(filename, ledger);
+    }
+    return ledger;
   }
 
-  private void cacheStockDetails(String symbol) throws IOException {
-    URL url = null;
-    InputStream in = null;
-    StringBuilder output = new StringBuilder();
-    try {
-      url = new URL(
-          "https://www.alphavantage" + ".co/query?function=TIME_SERIES_DAILY" + "&outputsize=full"
-              + "&symbol=" + symbol + "&datatype=csv" + apiKey);
-
-      in = url.openStream();
-      int b;
-      while ((b = in.read()) != -1) {
-        output.append((char) b);
-      }
+  private PortfolioLedger getLedger(String filename) throws IOException {
+    if (pendingTransactions.containsKey(filename)) {
+      commitTransactions();
+    }
+    return loadLedger(filename);
+  }
 
-    } catch (MalformedURLException e) {
-      throw new IOException("the alphavantage API has either changed or no longer works. " + e);
-    } catch (IOException e) {
-      throw new IOException("Error reading data from the alphavantage API. " + e);
+  //transactions added until the matching endBatch are written together
+  private void beginBatch() {
+    batchDepth++;
+  }
+
+  private void endBatch() throws IOException {
+    if (--batchDepth == 0) {
+      commitTransactions();
     }
+  }
+
+  private void commitTransactions() throws IOException {
+    Iterator<Map.Entry<String, List<TransactionJournal.Entry>>> iterator =
+        pendingTransactions.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, List<TransactionJournal.Entry>> pending = iterator.next();
+      String filename = pending.getKey();
+      List<TransactionJournal.Entry> entries = pending.getValue();
+      PortfolioLedger ledger = loadLedger(filename);
+      TransactionJournal journal = getJournal(filename);
+      if (!journal.exists()) {
+        //start the journal with the transactions so far in the csv file
+        Files.createDirectories(journal.getFile().getParent());
+        List<TransactionJournal.Entry> existing = new ArrayList<>();
+        for (int i = 0; i < ledger.size(); i++) {
+          existing.add(new TransactionJournal.Entry(ledger.getSymbol(i), ledger.getQuantity(i),
+              ledger.getDate(i), ledger.isSell(i), ledger.getCommissionFee(i),
+              ledger.getPrice(i)));
+        }
+        if (!journal.create(existing, syncJournal)) {
+          //started by another process since the csv file was read, it holds the transactions
+          ledgers.remove(filename);
+          staleExports.add(filename);
+        }
+      } else if (journal.getVersion() < TransactionJournal.VERSION) {
+        //transactions journaled before the price was kept stay without one
+        journal.rewrite(journal.read());
+      }
+      journal.append(entries, syncJournal);
+      //the group is committed once it is in the journal, it must not be appended again
+      iterator.remove();
 
-    FileWriter fw = new FileWriter("misc/" + symbol + ".csv", false);
-    fw.write(output.toString());
-    fw.close();
+      if (!ledgers.containsKey(filename)) {
+        //read again from the journal on the next query
+        continue;
+      }
+      StringBuilder rows = new StringBuilder();
+      for (TransactionJournal.Entry entry : entries) {
+        rows.append("\n").append(entry.toCsvRow());
+        ledger.append(entry.getSymbol(), entry.getQuantity(), entry.getDate(), entry.isSell(),
+            entry.getCommissionFee(), entry.getPrice());
+      }
+      ledger.markCurrent(journal.getFile());
 
+      //keep the csv export in step, with one write for the whole group
+      if (!staleExports.contains(filename)) {
+        try {
+          Files.writeString(Path.of("flexPortfolios", filename), rows, StandardCharsets.UTF_8,
+              StandardOpenOption.APPEND);
+        } catch (IOException e) {
+          staleExports.add(filename);
+        }
+      }
+    }
+    exportStaleCsv();
+  }
 
+  //write the csv export of the portfolios again from their journals, the ones that still fail
+  //are tried again on the next commit since the journal already holds their transactions
+  private void exportStaleCsv() {
+    Iterator<String> iterator = staleExports.iterator();
+    while (iterator.hasNext()) {
+      String filename = iterator.next();
+      try {
+        getJournal(filename).exportCsv(Path.of("flexPortfolios", filename));
+        iterator.remove();
+      } catch (IOException e) {
+        LOGGER.log(Level.WARNING, "Portfolio " + filename + " could not be exported", e);
+      }
+    }
   }
 
-  private double fetchPriceDataFromCache(String date) throws IllegalArgumentException, IOException {
-    BufferedReader br = new BufferedReader(new FileReader("misc/" + getStockSymbol() + ".csv"));
-    String row;
-    //skip header
-    br.readLine();
-    while ((row = br.readLine()) != null) {
-      String[] values = row.split(",");
-      if (values[0].equals(date)) {
-        return Double.parseDouble(values[4]);
+
+  private LocalDate nextTradingDay(Collection<String> symbols, LocalDate date) throws IOException {
+    //all the stocks trade on the same market days, any cached series covering the date will do
+    for (String symbol : symbols) {
+      if (checkCacheExists(symbol)) {
+        TradingCalendar calendar = new TradingCalendar(getPriceSeries(symbol));
+        if (calendar.covers(date)) {
+          return calendar.onOrAfter(date);
+        }
       }
     }
-    throw new IllegalArgumentException(
-        "Price data for symbol: " + getStockSymbol() + " not found on " + date);
+    return date;
   }
 
 
@@ -124,21 +259,7 @@ public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
 
     setQuantity(quantity);
 
-    //if cache doesn't exist create a cache
-    if (!checkCacheExists(getStockSymbol())) {
-      cacheStockDetails(getStockSymbol());
-    }
-
-    try {
-      setStockPrice(fetchPriceDataFromCache(date));
-
-    } catch (IllegalArgumentException e) {
-      // if price data not found in cache then update cache & search again
-      updateCache(getStockSymbol());
-
-      // throws IllegalArgumentException if data not found
-      setStockPrice(fetchPriceDataFromCache(date));
-    }
+    setStockPrice(getCachedClosePrice(getStockSymbol(), LocalDate.parse(date)));
     setStockBuyDate(date);
     setCommissionFee(commissionFee);
     return "Stock Details:\nStock Name: " + getStockSymbol() + ", " + getStockName()
@@ -149,19 +270,67 @@ public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
 
   @Override
   public List<String> listPortfolio() {
-    List<String> fileList = new ArrayList<String>();
-    File[] files = new File("flexPortfolios").listFiles();
-    for (File file : files) {
-      if (file.isFile()) {
-        fileList.add(file.getName());
+    return catalog.list();
+  }
+
+  @Override
+  public int getFileIndex(String fileName) {
+    return catalog.getFileIndex(fileName + ".csv");
+  }
+
+
+  @Override
+  public CompletableFuture<Void> prefetchPortfolio(String fileIndex) {
+    //nothing is read on the caller's thread, which is the GUI event thread
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return readPortfolioSymbols(catalog.getFilename(Integer.parseInt(fileIndex)));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, prefetchExecutor).thenCompose(this::prefetchSymbols);
+  }
+
+  //the symbols are read from the files, the ledgers cached by the model are not thread safe
+  private Set<String> readPortfolioSymbols(String filename) throws IOException {
+    TransactionJournal journal = getJournal(filename);
+    PortfolioLedger ledger = journal.exists() ? journal.readLedger()
+        : PortfolioLedger.read(Path.of("flexPortfolios", filename));
+    Set<String> symbols = new LinkedHashSet<>(ledger.getSymbols());
+    String row;
+
+    //the stocks of a dollar cost strategy are bought on the next lookup
+    if (checkDollarCostStrategyExists(filename)) {
+      BufferedReader br = new BufferedReader(new FileReader("dollarCostStrategy/" + filename));
+      //skip header
+      br.readLine();
+      while ((row = br.readLine()) != null) {
+        symbols.add(row.split(",")[0]);
       }
+      br.close();
     }
-    return fileList;
+    return symbols;
   }
 
+  private CompletableFuture<Void> prefetchSymbols(Set<String> symbols) {
+    List<CompletableFuture<Void>> warmups = new ArrayList<>();
+    for (String symbol : symbols) {
+      warmups.add(CompletableFuture.runAsync(() -> {
+        try {
+          if (!checkCacheExists(symbol)) {
+            createCache(symbol, FetchScheduler.Priority.BACKGROUND);
+          }
+          getPriceSeries(symbol);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }, prefetchExecutor));
+    }
+    return CompletableFuture.allOf(warmups.toArray(new CompletableFuture<?>[0]));
+  }
 
   private void dollarCostLazyExecHelper(String fileIndex, String date) throws IOException {
-    String filename = listPortfolio().get(Integer.parseInt(fileIndex) - 1);
+    String filename = catalog.getFilename(Integer.parseInt(fileIndex));
     String row;
     String[] values;
     Map<String, Double> stockWeightMap = new HashMap<>();
@@ -226,34 +395,43 @@ public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
       int counter = (int) (daysToProcess / frequency);
       LocalDate tmp = lastProcessed;
 
-      while (counter != 0) {
-        tmp = tmp.plusDays(frequency);
-
-        //break if tmp date created is future date since no data is available
-        if (tmp.isAfter(LocalDate.now())) {
-          break;
-        }
+      //the purchases of all the periods are written together
+      beginBatch();
+      try {
+        while (counter != 0) {
+          tmp = tmp.plusDays(frequency);
 
-        int tryCount = 0;
-        int maxTries = 3;
-        while (true) {
-          try {
-            //System.out.println("counter is: " + counter + " and Processing date: " + tmp);
-            // break out of loop on success
-            investFixedAmountInPortfolio(fileIndex, stockWeightMap, amountToInvest, commissionFee,
-                tmp.toString());
+          //break if tmp date created is future date since no data is available
+          if (tmp.isAfter(LocalDate.now())) {
             break;
-          } catch (IllegalArgumentException e) {
-            //System.out.println(e);
-            // handle exception
-            //check data on next date
-            tmp = tmp.plusDays(1);
-            if (++tryCount == maxTries) {
-              throw e;
+          }
+
+          //skip to the next trading day without looking up the price
+          tmp = nextTradingDay(stockWeightMap.keySet(), tmp);
+
+          int tryCount = 0;
+          int maxTries = 3;
+          while (true) {
+            try {
+              //System.out.println("counter is: " + counter + " and Processing date: " + tmp);
+              // break out of loop on success
+              investFixedAmountInPortfolio(fileIndex, stockWeightMap, amountToInvest,
+                  commissionFee, tmp.toString());
+              break;
+            } catch (IllegalArgumentException e) {
+              //System.out.println(e);
+              // handle exception
+              //check data on next date
+              tmp = tmp.plusDays(1);
+              if (++tryCount == maxTries) {
+                throw e;
+              }
             }
           }
+          counter--;
         }
-        counter--;
+      } finally {
+        endBatch();
       }
 
       //lazy execution done
@@ -288,61 +466,14 @@ public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
 
   @Override
   public String viewPortfolio(String fileIndex, String date) throws IOException {
-    String filename = listPortfolio().get(Integer.parseInt(fileIndex) - 1);
+    String filename = catalog.getFilename(Integer.parseInt(fileIndex));
 
     //check if the given portfolio has a dollar cost strategy, if yes perform lazy execution
     if (checkDollarCostStrategyExists(filename)) {
       dollarCostLazyExecHelper(fileIndex, date);
     }
 
-    List<String> fileList = listPortfolio();
-    BufferedReader br = new BufferedReader(
-        new FileReader("flexPortfolios/" + fileList.get(Integer.parseInt(fileIndex) - 1)));
-    String row;
-    stockQtyMap = new HashMap<>();
-    LocalDate dateToConsider = LocalDate.parse(date);
-
-    //skip header
-    br.readLine();
-
-    while ((row = br.readLine()) != null) {
-      String[] values = row.split(",");
-      LocalDate transactionDate = LocalDate.parse(values[2]);
-
-      //if map contains symbol
-      if (stockQtyMap.containsKey(values[0])) {
-
-        //check if transaction is buy && transaction date is before or equals date to consider
-        if (values[3].equals("buy") && (transactionDate.isBefore(dateToConsider)
-            || transactionDate.equals(dateToConsider))) {
-          stockQtyMap.replace(values[0],
-              stockQtyMap.get(values[0]) + Double.parseDouble(values[1]));
-        }
-        //check if transaction is sell && transaction date is before or equals date to consider
-        if (values[3].equals("sell") && (transactionDate.isBefore(dateToConsider)
-            || transactionDate.equals(dateToConsider))) {
-          stockQtyMap.replace(values[0],
-              stockQtyMap.get(values[0]) - Double.parseDouble(values[1]));
-        }
-
-      } else {
-
-        //check if transaction is buy && transaction date is before or equals date to sell
-        if (values[3].equals("buy") && (transactionDate.isBefore(dateToConsider)
-            || transactionDate.equals(dateToConsider))) {
-          stockQtyMap.put(values[0], Double.parseDouble(values[1]));
-        }
-        //check if transaction is sell && transaction date is before or equals date to sell
-        if (values[3].equals("sell") && (transactionDate.isBefore(dateToConsider)
-            || transactionDate.equals(dateToConsider))) {
-          stockQtyMap.put(values[0], -Double.parseDouble(values[1]));
-        }
-
-      }
-
-    }
-
-    br.close();
+    stockQtyMap = getLedger(filename).getHoldings(LocalDate.parse(date));
 
     StringBuilder result = new StringBuilder();
 
@@ -358,56 +489,16 @@ public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
   @Override
   public double getCostBasisOnADate(String fileIndex, String date) throws IOException {
 
-    String filename = listPortfolio().get(Integer.parseInt(fileIndex) - 1);
+    String filename = catalog.getFilename(Integer.parseInt(fileIndex));
 
     //check if the given portfolio has a dollar cost strategy, if yes perform lazy execution
     if (checkDollarCostStrategyExists(filename)) {
       dollarCostLazyExecHelper(fileIndex, date);
     }
 
-    List<String> fileList = listPortfolio();
-    BufferedReader br = new BufferedReader(
-        new FileReader("flexPortfolios/" + fileList.get(Integer.parseInt(fileIndex) - 1)));
-    String row;
-    double costBasisSum = 0;
-    LocalDate dateToConsider = LocalDate.parse(date);
-
-    //skip header
-    br.readLine();
-
-    while ((row = br.readLine()) != null) {
-      String[] values = row.split(",");
-      LocalDate transactionDate = LocalDate.parse(values[2]);
-
-      //check if transaction is buy && transaction date is before or equals date to consider
-      if (values[3].equals("buy") && (transactionDate.isBefore(dateToConsider)
-          || transactionDate.equals(dateToConsider))) {
-
-        //set stock symbol
-        setStockSymbol(values[0]);
-        //fetch price of that symbol on the buy date
-        double stockPriceTmp = fetchPriceDataFromCache(values[2]);
-        //price * qty + commission fee
-        costBasisSum =
-            costBasisSum + (stockPriceTmp * Double.parseDouble(values[1])) + Double.parseDouble(
-                values[4]);
-
-      }
-
-      if (values[3].equals("sell") && (transactionDate.isBefore(dateToConsider)
-          || transactionDate.equals(dateToConsider))) {
-
-        //Add commission fee for sell transactions
-        costBasisSum = costBasisSum + Double.parseDouble(values[4]);
-
-      }
-
-
-    }
-
-    br.close();
-
-    return costBasisSum;
+    //price * qty + commission fee of the buys, and the commission fee of the sells
+    //transactions recorded before the price was kept use the close price on their date
+    return getLedger(filename).getCostBasis(LocalDate.parse(date), this::getCachedClosePrice);
   }
 
 
@@ -415,7 +506,7 @@ public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
   public double getPortfolioValue(String fileIndex, String date)
       throws IllegalArgumentException, IOException {
 
-    String filename = listPortfolio().get(Integer.parseInt(fileIndex) - 1);
+    String filename = catalog.getFilename(Integer.parseInt(fileIndex));
 
     //check if the given portfolio has a dollar cost strategy, if yes perform lazy execution
     if (checkDollarCostStrategyExists(filename)) {
@@ -424,7 +515,7 @@ public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
 
     double result = 0;
     //get the portfolio contents on a date by setting values in map
-    viewPortfolio(fileIndex, date);
+    stockQtyMap = getLedger(filename).getHoldings(LocalDate.parse(date));
 
     for (String stock : stockQtyMap.keySet()) {
       setStockSymbol(stock);
@@ -441,14 +532,16 @@ public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
 
   @Override
   public void createPortfolio(String name) throws IOException {
-    List<String> existingFiles = listPortfolio();
-    if (!existingFiles.contains(name + ".csv")) {
+    if (catalog.get(name + ".csv") == null) {
       setPortfolioName(name);
+      //a journal left behind by a removed portfolio of the same name does not belong to this one
+      Files.deleteIfExists(getJournal(name + ".csv").getFile());
       File portfolio = new File("flexPortfolios/" + name + ".csv");
       portfolio.createNewFile();
       FileWriter fw = new FileWriter("flexPortfolios/" + name + ".csv");
-      fw.append("Symbol,Quantity,Date,Transaction-Type,Commission-Fee");
+      fw.append(PortfolioLedger.CSV_HEADER);
       fw.close();
+      catalog.register(name + ".csv");
     } else {
       throw new IOException(
           "Portfolio with the same name already exists. Please choose a different name!");
@@ -457,50 +550,32 @@ public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
 
   @Override
   public void addToPortfolio(String fileIndex, String transactionType) throws IOException {
-    List<String> fileList = listPortfolio();
-    FileWriter fw = new FileWriter(
-        "flexPortfolios/" + fileList.get(Integer.parseInt(fileIndex) - 1), true);
-    fw.append("\n" + getStockSymbol() + "," + getStockQuantity() + "," + getStockBuyDate() + ","
-        + transactionType + "," + getCommissionFee());
-    fw.close();
+    String filename = catalog.getFilename(Integer.parseInt(fileIndex));
+    if (!transactionType.equals("buy") && !transactionType.equals("sell")) {
+      throw new IllegalArgumentException("Invalid transaction type: " + transactionType);
+    }
+    pendingTransactions.computeIfAbsent(filename, name -> new ArrayList<>()).add(
+        new TransactionJournal.Entry(getStockSymbol(), getStockQuantity(),
+            LocalDate.parse(getStockBuyDate()), transactionType.equals("sell"),
+            getCommissionFee(), getStockPrice()));
+    if (batchDepth == 0) {
+      commitTransactions();
+    }
   }
 
-  private void validateSellHelper(BufferedReader br, double quantity, String date,
+  private void validateSellHelper(PortfolioLedger ledger, double quantity, String date,
       double commissionFee) throws IllegalArgumentException, IOException {
-    String row;
-
-    double quantityAvailable = 0;
     LocalDate dateToSell = LocalDate.parse(date);
 
-    //skip header
-    br.readLine();
-
-    while ((row = br.readLine()) != null) {
-      String[] values = row.split(",");
-      LocalDate transactionDate = LocalDate.parse(values[2]);
-
-      if (values[0].equals(getStockSymbol())) {
-        //check if transaction is buy && transaction date is before or equals date to sell
-        if (values[3].equals("buy") && (dateToSell.isAfter(transactionDate)
-            || transactionDate.equals(dateToSell))) {
-          quantityAvailable += Double.parseDouble(values[1]);
-        }
-        //check if transaction is Sell && transaction date is before or equals date to sell
-        if (values[3].equals("sell") && (dateToSell.isAfter(transactionDate)
-            || transactionDate.equals(dateToSell))) {
-          quantityAvailable -= Double.parseDouble(values[1]);
-        }
-
-        //check if transaction is Sell && A sell has already happened in the future.
-        if (values[3].equals("sell") && dateToSell.isBefore(transactionDate)) {
-          throw new IllegalArgumentException(
-              "Invalid transaction." + "A sell has already happened in the future date:"
-                  + transactionDate);
-        }
-
-      }
+    //check if A sell has already happened in the future.
+    LocalDate lastSell = ledger.getLastSellDate(getStockSymbol());
+    if (lastSell != null && dateToSell.isBefore(lastSell)) {
+      throw new IllegalArgumentException(
+          "Invalid transaction." + "A sell has already happened in the future date:" + lastSell);
     }
-    br.close();
+
+    //buys less sells on or before the date to sell
+    double quantityAvailable = ledger.getQuantityHeld(getStockSymbol(), dateToSell);
 
     if (quantityAvailable < quantity) {
       throw new IllegalArgumentException(
@@ -514,18 +589,14 @@ public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
   @Override
   public void validateSellDetails(String fileIndex, double quantity, String date,
       double commissionFee) throws IllegalArgumentException, IOException {
-    String filename = listPortfolio().get(Integer.parseInt(fileIndex) - 1);
+    String filename = catalog.getFilename(Integer.parseInt(fileIndex));
 
     //check if the given portfolio has a dollar cost strategy, if yes perform lazy execution
     if (checkDollarCostStrategyExists(filename)) {
       dollarCostLazyExecHelper(fileIndex, date);
     }
 
-    List<String> fileList = listPortfolio();
-    BufferedReader br = new BufferedReader(
-        new FileReader("flexPortfolios/" + fileList.get(Integer.parseInt(fileIndex) - 1)));
-
-    validateSellHelper(br, quantity, date, commissionFee);
+    validateSellHelper(getLedger(filename), quantity, date, commissionFee);
 
 
   }
@@ -535,7 +606,7 @@ public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
   public Map<String, Integer> getPortfolioPerformance(String fileIndex, String startDate,
       String endDate) throws IOException, ParseException {
 
-    String filename = listPortfolio().get(Integer.parseInt(fileIndex) - 1);
+    String filename = catalog.getFilename(Integer.parseInt(fileIndex));
 
     //check if the given portfolio has a dollar cost strategy, if yes perform lazy execution
     if (checkDollarCostStrategyExists(filename)) {
@@ -547,6 +618,10 @@ public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
     Map<String, Integer> dateStarsMap = new LinkedHashMap<>();
     DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
 
+    //the stocks held at the end, used to resolve the trading days
+    viewPortfolio(fileIndex, endDate);
+    Set<String> symbols = new HashSet<>(stockQtyMap.keySet());
+
     int frequency = 5;
     Date start = (Date) dateFormat.parse(startDate);
     Date end = (Date) dateFormat.parse(endDate);
@@ -555,7 +630,7 @@ public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
     for (int i = 0; i <= frequency && intervalSize > 0; i++) {
       Date date = new Date(start.getTime() + intervalSize * i);
 
-      LocalDate tmp = LocalDate.parse(dateFormat.format(date));
+      LocalDate tmp = nextTradingDay(symbols, LocalDate.parse(dateFormat.format(date)));
       int tryCount = 0;
       int maxTries = 3;
       double pfValue;
@@ -609,6 +684,17 @@ public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
     amount = amount - (stockWeights.size() * commissionFee);
 
     //System.out.println("amount:" + amount);
+    beginBatch();
+    try {
+      investEachStock(fileIndex, stockWeights, amount, commissionFee, date);
+    } finally {
+      endBatch();
+    }
+
+  }
+
+  private void investEachStock(String fileIndex, Map<String, Double> stockWeights, double amount,
+      double commissionFee, String date) throws IllegalArgumentException, IOException {
     for (String symbol : stockWeights.keySet()) {
       if (validateSymbol(symbol)) {
         //get the weight percentage
@@ -675,8 +761,8 @@ public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
       }
       fw.close();
 
-      //buy stocks on start date
-      LocalDate tmp = LocalDate.parse(startDate);
+      //buy stocks on start date, or the next trading day after it
+      LocalDate tmp = nextTradingDay(stockWeights.keySet(), LocalDate.parse(startDate));
       int tryCount = 0;
       int maxTries = 3;
       while (true) {
@@ -729,8 +815,10 @@ public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
 
     BufferedReader br = new BufferedReader(new FileReader(pathSrc.toString()));
     String row;
-    StringBuilder tmpData = new StringBuilder();
-    tmpData.append("header");
+    //the rows validated so far, to validate the sells against
+    PortfolioLedger loaded = new PortfolioLedger();
+    //the rows to save, with the price of each transaction
+    StringBuilder rows = new StringBuilder(PortfolioLedger.CSV_HEADER);
 
     //skip first line as it contains header
     br.readLine();
@@ -765,29 +853,43 @@ public class FlexStockbroker extends StockBroker implements IFlexStockbroker {
       //if transaction is sell check whether it was a valid transaction
       if (values[3].equals("sell")) {
 
-        //create a tmp file & write tmpdata
-        File tmpfile = File.createTempFile("abc", ".tmp");
-        BufferedWriter bw = new BufferedWriter(new FileWriter(tmpfile));
-        bw.write(tmpData.toString());
-        bw.close();
         try {
-          validateSellHelper(new BufferedReader(new FileReader(tmpfile)), getStockQuantity(),
-              values[2], getCommissionFee());
+          validateSellHelper(loaded, getStockQuantity(), values[2], getCommissionFee());
         } catch (IllegalArgumentException e) {
           throw new IllegalArgumentException(e + "\nInvalid entry in file in row: " + row);
         }
 
       }
 
-      tmpData.append("\n" + row);
+      if (values[3].equals("buy") || values[3].equals("sell")) {
+        //a price in the file is the price the trade was made at, else use the close price
+        double price = getStockPrice();
+        if (values.length > 5) {
+          price = Double.parseDouble(values[5]);
+          if (!(price > 0)) {
+            throw new IllegalArgumentException("Invalid price:" + values[5] + " in row:" + row);
+          }
+        }
+        loaded.append(values[0], getStockQuantity(), LocalDate.parse(values[2]),
+            values[3].equals("sell"), getCommissionFee(), price);
+        row = String.join(",", Arrays.copyOf(values, 5)) + "," + price;
+      }
+      rows.append("\n").append(row);
 
     }
+    br.close();
     //all rows processed and valid
-    //copy it to local portfolio folder
+    //save it to local portfolio folder
     Path pathDest = Path.of("flexPortfolios" + File.separator + fileName);
-    Files.copy(pathSrc, pathDest);
-
-    br.close();
+    if (Files.exists(pathDest)) {
+      throw new FileAlreadyExistsException(pathDest.toString());
+    }
+    //a journal left behind by a removed portfolio of the same name does not belong to this one
+    Files.deleteIfExists(getJournal(fileName).getFile());
+    ledgers.remove(fileName);
+    staleExports.remove(fileName);
+    AtomicFiles.write(pathDest, temp -> Files.writeString(temp, rows, StandardCharsets.UTF_8));
+    catalog.register(fileName);
 
 
   }
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.text.ParseException;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The interface for model of FlexStockbroker class. It contains all the functions to support the
@@ -126,6 +127,18 @@ public interface IFlexStockbroker extends IStockbroker {
       double amount, double commissionFee, String startDate, String endDate, int frequency)
       throws IllegalArgumentException, IOException;
 
+  /**
+   * Load the price data of all the stocks in a portfolio in the background, so that the later
+   * lookups on the portfolio are answered from memory. Missing price data is fetched within the
+   * request limit of the price data provider, behind the interactive requests. Nothing is read on
+   * the calling thread, the future completes exceptionally if the portfolio or its price data
+   * cannot be read.
+   *
+   * @param fileIndex index of the portfolio file from the list.
+   * @return future completed once the price data of every stock is loaded.
+   */
+  CompletableFuture<Void> prefetchPortfolio(String fileIndex);
+
   /**
    * Get method for stock and quantity in a portfolio. Called after viewPortfolio is called.
    *
@@ -0,0 +1,78 @@
+package stockbroker.model;
+
+import java.time.LocalDate;
+
+/**
+ * The interface for the daily price history of a single stock. The trading days of a series are
+ * held in ascending order of date, so that they can be looked up by position as well as by date.
+ */
+public interface IPriceSeries {
+
+  /**
+   * Get the symbol of the stock.
+   *
+   * @return symbol of the stock.
+   */
+  String getSymbol();
+
+  /**
+   * Get the number of trading days in the series.
+   *
+   * @return number of trading days.
+   */
+  int size();
+
+  /**
+   * Get the trading day at a position in the series.
+   *
+   * @param index position of the trading day, 0 being the oldest.
+   * @return the trading day as an epoch day.
+   */
+  int getEpochDay(int index);
+
+  /**
+   * Get the closing price at a position in the series.
+   *
+   * @param index position of the trading day, 0 being the oldest.
+   * @return closing price on that trading day.
+   */
+  double getClosePriceAt(int index);
+
+  /**
+   * Check if the series has a price on the given date.
+   *
+   * @param date date to check.
+   * @return true if the date is a trading day in the series.
+   */
+  boolean hasPriceOn(LocalDate date);
+
+  /**
+   * Get the closing price on a date.
+   *
+   * @param date date on which the price is required.
+   * @return closing price of the stock on the date.
+   * @throws IllegalArgumentException if there is no price on the date.
+   */
+  double getClosePrice(LocalDate date) throws IllegalArgumentException;
+
+  /**
+   * Get the first date available in the series.
+   *
+   * @return first date or null if the series is empty.
+   */
+  LocalDate getFirstDate();
+
+  /**
+   * Get the last date available in the series.
+   *
+   * @return last date or null if the series is empty.
+   */
+  LocalDate getLastDate();
+
+  /**
+   * Release the file the series is read from, if any, so that the file can be replaced or
+   * deleted. The series can still be read afterwards.
+   */
+  default void release() {
+  }
+}
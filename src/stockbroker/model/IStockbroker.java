@@ -1,6 +1,7 @@
 package stockbroker.model;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -18,6 +19,16 @@ public interface IStockbroker {
    */
   boolean validateSymbol(String symbol) throws IOException;
 
+  /**
+   * Search the listed stocks by the start of their symbol or company name.
+   *
+   * @param prefix start of the symbol or the company name.
+   * @param limit  maximum number of stocks to return.
+   * @return matching stocks as "symbol - name", the symbol matches first.
+   * @throws IOException on file errors.
+   */
+  List<String> searchSymbols(String prefix, int limit) throws IOException;
+
   /**
    * Get the stock details such as stock name, current price etc.
    *
@@ -41,6 +52,15 @@ public interface IStockbroker {
    */
   double getStockValueOnADate(String date) throws IllegalArgumentException;
 
+  /**
+   * Fetch the latest quotes of the stocks whose cached quotes have expired, all at once, so the
+   * following lookups of their latest values are served from the quote cache.
+   *
+   * @param symbols symbols of the stocks.
+   * @throws IOException if interrupted while fetching.
+   */
+  void refreshQuotes(Collection<String> symbols) throws IOException;
+
   /**
    * Creates a csv file to store the portfolio details {name}.csv
    *
@@ -0,0 +1,87 @@
+package stockbroker.model;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Price data provider reading the data from local files, for hosts without network access. The
+ * files can be in a directory or in a zip archive, laid out as:
+ *
+ * <pre>
+ * {symbol}.csv     daily price history of a stock, latest day first
+ * stockList.csv    listing of all the stocks
+ * </pre>
+ *
+ * <p>The latest quote of a stock is the latest day of its daily price history.
+ */
+public class LocalPriceDataProvider implements PriceDataProvider {
+
+  private final Path root;
+
+  /**
+   * Constructor of the local provider.
+   *
+   * @param source directory or zip archive holding the price files.
+   * @throws IOException if the zip archive cannot be opened.
+   */
+  public LocalPriceDataProvider(Path source) throws IOException {
+    if (Files.isRegularFile(source) && source.toString().endsWith(".zip")) {
+      FileSystem zip = FileSystems.newFileSystem(source, (ClassLoader) null);
+      this.root = zip.getPath("/");
+    } else {
+      this.root = source;
+    }
+  }
+
+  private InputStream open(String fileName) throws IOException {
+    Path file = root.resolve(fileName);
+    if (!Files.exists(file)) {
+      throw new FileNotFoundException("No local price data: " + fileName);
+    }
+    return Files.newInputStream(file);
+  }
+
+  @Override
+  public InputStream openDailySeries(String symbol, boolean full) throws IOException {
+    return open(symbol + ".csv");
+  }
+
+  @Override
+  public InputStream openQuote(String symbol) throws IOException {
+    String latest;
+    try (BufferedReader br = Files.newBufferedReader(root.resolve(symbol + ".csv"),
+        StandardCharsets.UTF_8)) {
+      //skip header
+      br.readLine();
+      latest = br.readLine();
+    }
+    if (latest == null) {
+      throw new IOException("No local price data for symbol: " + symbol);
+    }
+    //timestamp,open,high,low,close,volume
+    String[] values = latest.split(",");
+    String quote = "symbol,open,high,low,price,volume,latestDay,previousClose,change,"
+        + "changePercent\n" + symbol + "," + values[1] + "," + values[2] + "," + values[3] + ","
+        + values[4] + "," + values[5] + "," + values[0] + ",,,\n";
+    return new ByteArrayInputStream(quote.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public InputStream openListing() throws IOException {
+    return open("stockList.csv");
+  }
+
+  @Override
+  public int getRequestsPerMinute() {
+    //local files are not rate limited
+    return Integer.MAX_VALUE;
+  }
+}
@@ -0,0 +1,108 @@
+package stockbroker.model;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Contents of a memory mapped price file that can be released before the file is replaced or
+ * deleted, which Windows refuses while the file is mapped. Releasing copies the contents on to
+ * the heap, so the series still held by a caller can be read as before, and then unmaps the file
+ * once no read is in progress.
+ *
+ * <p>The file is unmapped through sun.misc.Unsafe, and is left to the garbage collector on a
+ * runtime without it.
+ */
+final class MappedBuffer {
+
+  //sun.misc.Unsafe.invokeCleaner bound to the unsafe instance, null if it cannot be found
+  private static final MethodHandle INVOKE_CLEANER = findCleaner();
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private ByteBuffer buffer;
+
+  /**
+   * Constructor of the buffer.
+   *
+   * @param mapped buffer mapped from the price file.
+   */
+  MappedBuffer(ByteBuffer mapped) {
+    this.buffer = mapped;
+  }
+
+  private static MethodHandle findCleaner() {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field field = unsafeClass.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      return MethodHandles.lookup().findVirtual(unsafeClass, "invokeCleaner",
+          MethodType.methodType(void.class, ByteBuffer.class)).bindTo(field.get(null));
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  private static void unmap(ByteBuffer mapped) {
+    if (INVOKE_CLEANER == null) {
+      return;
+    }
+    try {
+      INVOKE_CLEANER.invokeExact(mapped);
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable e) {
+      //left to the garbage collector
+    }
+  }
+
+  int getInt(int index) {
+    lock.readLock().lock();
+    try {
+      return buffer.getInt(index);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  double getDouble(int index) {
+    lock.readLock().lock();
+    try {
+      return buffer.getDouble(index);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  byte[] getBytes(int index, int length) {
+    byte[] bytes = new byte[length];
+    lock.readLock().lock();
+    try {
+      buffer.get(index, bytes);
+    } finally {
+      lock.readLock().unlock();
+    }
+    return bytes;
+  }
+
+  /**
+   * Copy the contents on to the heap and unmap the file. Does nothing if already released.
+   */
+  void release() {
+    lock.writeLock().lock();
+    try {
+      if (!buffer.isDirect()) {
+        return;
+      }
+      ByteBuffer mapped = buffer;
+      ByteBuffer heap = ByteBuffer.allocate(mapped.capacity()).order(mapped.order());
+      heap.put(0, mapped, 0, mapped.capacity());
+      buffer = heap;
+      unmap(mapped);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+}
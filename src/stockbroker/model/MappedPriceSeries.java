@@ -0,0 +1,176 @@
+package stockbroker.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ * Price series backed by a memory mapped binary price file. The file has a fixed size header
+ * followed by one fixed width record per trading day, in ascending order of date:
+ *
+ * <pre>
+ * header : magic(int) version(int) symbol(16 bytes) rows(int) minDay(int) maxDay(int)
+ * record : epochDay(int) close(double)
+ * </pre>
+ *
+ * <p>Lookups read directly from the mapped file, so the prices are never copied on to the heap
+ * unless the series is released to replace the file.
+ */
+public class MappedPriceSeries implements IPriceSeries {
+
+  static final int MAGIC = 0x53425053;
+  static final int VERSION = 1;
+  static final int SYMBOL_LENGTH = 16;
+  static final int HEADER_SIZE = 4 + 4 + SYMBOL_LENGTH + 4 + 4 + 4;
+  static final int RECORD_SIZE = 4 + 8;
+
+  private final String symbol;
+  private final MappedBuffer buffer;
+  private final int rows;
+
+  private MappedPriceSeries(String symbol, MappedBuffer buffer, int rows) {
+    this.symbol = symbol;
+    this.buffer = buffer;
+    this.rows = rows;
+  }
+
+  /**
+   * Map a binary price file in read only mode.
+   *
+   * @param file path to the binary price file.
+   * @return the price series backed by the file.
+   * @throws IOException if the file cannot be read or is not a valid price file.
+   */
+  public static MappedPriceSeries map(Path file) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_SIZE) {
+        throw new IOException("Invalid price file: " + file);
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+          .order(ByteOrder.BIG_ENDIAN);
+    }
+
+    if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+      throw new IOException("Invalid price file: " + file);
+    }
+    byte[] name = new byte[SYMBOL_LENGTH];
+    buffer.get(8, name);
+    String symbol = new String(name, StandardCharsets.US_ASCII).trim();
+    int rows = buffer.getInt(8 + SYMBOL_LENGTH);
+    if (buffer.capacity() < HEADER_SIZE + (long) rows * RECORD_SIZE) {
+      throw new IOException("Truncated price file: " + file);
+    }
+    return new MappedPriceSeries(symbol, new MappedBuffer(buffer), rows);
+  }
+
+  /**
+   * Write a price series to a binary price file that can later be mapped.
+   *
+   * @param series price series to write.
+   * @param file   path of the binary price file.
+   * @throws IOException on file handling errors.
+   */
+  public static void write(IPriceSeries series, Path file) throws IOException {
+    int rows = series.size();
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + rows * RECORD_SIZE)
+        .order(ByteOrder.BIG_ENDIAN);
+    byte[] name = new byte[SYMBOL_LENGTH];
+    byte[] symbol = series.getSymbol().getBytes(StandardCharsets.US_ASCII);
+    System.arraycopy(symbol, 0, name, 0, Math.min(symbol.length, SYMBOL_LENGTH));
+    for (int i = symbol.length; i < SYMBOL_LENGTH; i++) {
+      name[i] = ' ';
+    }
+
+    buffer.putInt(MAGIC);
+    buffer.putInt(VERSION);
+    buffer.put(name);
+    buffer.putInt(rows);
+    buffer.putInt(rows == 0 ? 0 : series.getEpochDay(0));
+    buffer.putInt(rows == 0 ? 0 : series.getEpochDay(rows - 1));
+    for (int i = 0; i < rows; i++) {
+      buffer.putInt(series.getEpochDay(i));
+      buffer.putDouble(series.getClosePriceAt(i));
+    }
+    buffer.flip();
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+
+  private int indexOf(int epochDay) {
+    int low = 0;
+    int high = rows - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int day = getEpochDay(mid);
+      if (day < epochDay) {
+        low = mid + 1;
+      } else if (day > epochDay) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  @Override
+  public String getSymbol() {
+    return symbol;
+  }
+
+  @Override
+  public int size() {
+    return rows;
+  }
+
+  @Override
+  public int getEpochDay(int index) {
+    return buffer.getInt(HEADER_SIZE + index * RECORD_SIZE);
+  }
+
+  @Override
+  public double getClosePriceAt(int index) {
+    return buffer.getDouble(HEADER_SIZE + index * RECORD_SIZE + 4);
+  }
+
+  @Override
+  public boolean hasPriceOn(LocalDate date) {
+    return indexOf((int) date.toEpochDay()) >= 0;
+  }
+
+  @Override
+  public double getClosePrice(LocalDate date) throws IllegalArgumentException {
+    int index = indexOf((int) date.toEpochDay());
+    if (index < 0) {
+      throw new IllegalArgumentException(
+          "Price data for symbol: " + symbol + " not found on " + date);
+    }
+    return getClosePriceAt(index);
+  }
+
+  @Override
+  public LocalDate getFirstDate() {
+    return rows == 0 ? null : LocalDate.ofEpochDay(buffer.getInt(12 + SYMBOL_LENGTH));
+  }
+
+  @Override
+  public LocalDate getLastDate() {
+    return rows == 0 ? null : LocalDate.ofEpochDay(buffer.getInt(16 + SYMBOL_LENGTH));
+  }
+
+  @Override
+  public void release() {
+    buffer.release();
+  }
+}
@@ -0,0 +1,336 @@
+package stockbroker.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Catalog of the portfolio csv files in a directory. Each portfolio gets an id when it is first
+ * seen, kept in the catalog file .catalog.properties of the directory, and the portfolios are
+ * listed in the order of their ids, so adding a portfolio never moves the others in the list. The
+ * position of a portfolio in the list is its 1-based file index.
+ *
+ * <p>The listing is cached in memory along with the size and modification time of each file, and
+ * kept up to date from the events of a {@link WatchService} on the directory instead of scanning it
+ * on every call. If the directory cannot be watched, it is scanned on every call as before.
+ *
+ * <p>A watch service holds an operating system handle (an inotify instance on Linux, of which a
+ * user gets few), so the models share one catalog per directory through {@link #forDirectory}.
+ * A catalog that is closed stops watching and scans the directory on every call.
+ */
+public class PortfolioCatalog implements Closeable {
+
+  static final String CATALOG_FILE = ".catalog.properties";
+
+  //the shared catalogs by the absolute path of their directory
+  private static final Map<Path, PortfolioCatalog> catalogs = new ConcurrentHashMap<>();
+
+  /**
+   * A portfolio in the catalog.
+   */
+  public static class Entry {
+
+    private final int id;
+    private final String filename;
+    private final long size;
+    private final FileTime modified;
+
+    Entry(int id, String filename, long size, FileTime modified) {
+      this.id = id;
+      this.filename = filename;
+      this.size = size;
+      this.modified = modified;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public String getFilename() {
+      return filename;
+    }
+
+    public long getSize() {
+      return size;
+    }
+
+    public FileTime getModified() {
+      return modified;
+    }
+  }
+
+  private final Path directory;
+  private final Map<String, Entry> entries = new HashMap<>();
+  private final Map<String, Integer> ids = new HashMap<>();
+  private int nextId = 1;
+  private List<String> listing;
+  private Map<String, Integer> positions;
+  private WatchService watchService;
+  private boolean scanned;
+  private boolean closed;
+
+  /**
+   * Constructor of the portfolio catalog. The directory is scanned on the first use.
+   *
+   * @param directory directory holding the portfolio csv files.
+   */
+  public PortfolioCatalog(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Get the catalog of a directory shared by all its users, creating it on the first call.
+   *
+   * @param directory directory holding the portfolio csv files.
+   * @return the shared catalog of the directory.
+   */
+  public static PortfolioCatalog forDirectory(Path directory) {
+    return catalogs.computeIfAbsent(directory.toAbsolutePath().normalize(),
+        PortfolioCatalog::new);
+  }
+
+  private static boolean isPortfolio(String filename) {
+    return filename.endsWith(".csv");
+  }
+
+  private void readIds() throws IOException {
+    Path file = directory.resolve(CATALOG_FILE);
+    if (!Files.exists(file)) {
+      return;
+    }
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    }
+    for (String name : properties.stringPropertyNames()) {
+      int id = Integer.parseInt(properties.getProperty(name));
+      ids.put(name, id);
+      nextId = Math.max(nextId, id + 1);
+    }
+  }
+
+  private void writeIds() throws IOException {
+    Properties properties = new Properties();
+    for (Map.Entry<String, Integer> id : ids.entrySet()) {
+      properties.setProperty(id.getKey(), String.valueOf(id.getValue()));
+    }
+    AtomicFiles.write(directory.resolve(CATALOG_FILE), temp -> {
+      try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+        properties.store(writer, "portfolio ids, in the order the portfolios were first seen");
+      }
+    });
+  }
+
+  //stat a portfolio file in to the catalog, true if it got a new id
+  private boolean update(String filename) {
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(directory.resolve(filename), BasicFileAttributes.class);
+    } catch (IOException e) {
+      attributes = null;
+    }
+    if (attributes == null || !attributes.isRegularFile()) {
+      //the id is kept, a file of the same name gets it back
+      entries.remove(filename);
+      return false;
+    }
+    Integer id = ids.get(filename);
+    boolean added = id == null;
+    if (added) {
+      id = nextId++;
+      ids.put(filename, id);
+    }
+    entries.put(filename, new Entry(id, filename, attributes.size(),
+        attributes.lastModifiedTime()));
+    return added;
+  }
+
+  private void scan() throws IOException {
+    entries.clear();
+    boolean added = false;
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        String filename = file.getFileName().toString();
+        if (isPortfolio(filename)) {
+          added |= update(filename);
+        }
+      }
+    }
+    if (added) {
+      writeIds();
+    }
+    listing = null;
+  }
+
+  private void open() throws IOException {
+    readIds();
+    if (closed) {
+      scan();
+      scanned = true;
+      return;
+    }
+    try {
+      watchService = FileSystems.getDefault().newWatchService();
+      directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+    } catch (IOException | UnsupportedOperationException e) {
+      //scan on every call instead
+      watchService = null;
+    }
+    scan();
+    scanned = true;
+  }
+
+  //apply the changes made to the directory since the last call
+  private void sync() throws IOException {
+    if (!scanned) {
+      open();
+      return;
+    }
+    if (watchService == null) {
+      scan();
+      return;
+    }
+    boolean added = false;
+    WatchKey key;
+    while ((key = watchService.poll()) != null) {
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+          scan();
+          continue;
+        }
+        String filename = ((Path) event.context()).getFileName().toString();
+        if (isPortfolio(filename)) {
+          added |= update(filename);
+          listing = null;
+        }
+      }
+      if (!key.reset()) {
+        //the directory itself is gone, fall back to scanning
+        watchService = null;
+        scan();
+        return;
+      }
+    }
+    if (added) {
+      writeIds();
+    }
+  }
+
+  private List<String> listing() {
+    try {
+      sync();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (listing == null) {
+      TreeMap<Integer, String> byId = new TreeMap<>();
+      for (Entry entry : entries.values()) {
+        byId.put(entry.id, entry.filename);
+      }
+      listing = new ArrayList<>(byId.values());
+      positions = new HashMap<>();
+      for (int i = 0; i < listing.size(); i++) {
+        positions.put(listing.get(i), i + 1);
+      }
+    }
+    return listing;
+  }
+
+  /**
+   * List the portfolio files in the order of their ids.
+   *
+   * @return file names of the portfolios.
+   * @throws UncheckedIOException if the directory cannot be read.
+   */
+  public synchronized List<String> list() {
+    return new ArrayList<>(listing());
+  }
+
+  /**
+   * Get the portfolio file at a file index.
+   *
+   * @param fileIndex 1-based position of the portfolio in the list.
+   * @return file name of the portfolio.
+   * @throws IndexOutOfBoundsException if there is no portfolio at the index.
+   * @throws UncheckedIOException      if the directory cannot be read.
+   */
+  public synchronized String getFilename(int fileIndex) {
+    return listing().get(fileIndex - 1);
+  }
+
+  /**
+   * Get the file index of a portfolio file.
+   *
+   * @param filename file name of the portfolio.
+   * @return 1-based position of the portfolio in the list, 0 if it is not in the catalog.
+   * @throws UncheckedIOException if the directory cannot be read.
+   */
+  public synchronized int getFileIndex(String filename) {
+    listing();
+    return positions.getOrDefault(filename, 0);
+  }
+
+  /**
+   * Get the catalog entry of a portfolio file.
+   *
+   * @param filename file name of the portfolio.
+   * @return entry of the portfolio, null if it is not in the catalog.
+   * @throws UncheckedIOException if the directory cannot be read.
+   */
+  public synchronized Entry get(String filename) {
+    listing();
+    return entries.get(filename);
+  }
+
+  /**
+   * Add a portfolio file just written to the catalog, without waiting for its watch event.
+   *
+   * @param filename file name of the portfolio.
+   * @throws IOException if the catalog cannot be updated.
+   */
+  public synchronized void register(String filename) throws IOException {
+    sync();
+    if (update(filename)) {
+      writeIds();
+    }
+    listing = null;
+  }
+
+  /**
+   * Stop watching the directory and drop the catalog from the shared ones. The catalog can still
+   * be used, but it scans the directory on every call.
+   *
+   * @throws IOException if the watch service cannot be closed.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    closed = true;
+    catalogs.remove(directory.toAbsolutePath().normalize(), this);
+    if (watchService != null) {
+      WatchService watched = watchService;
+      watchService = null;
+      watched.close();
+    }
+  }
+}
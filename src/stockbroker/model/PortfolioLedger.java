@@ -0,0 +1,481 @@
+package stockbroker.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory ledger of the transactions of a flexible portfolio. The portfolio csv file is parsed
+ * once in to parallel arrays sorted by the transaction date, and new transactions are added to the
+ * arrays as they are appended to the file, so the queries on a date only visit the transactions up
+ * to that date without reading the file again. A ledger is not thread safe.
+ *
+ * <p>The holdings after every {@value #CHECKPOINT_INTERVAL} transactions are kept as checkpoints,
+ * built as the queries reach them. The holdings on a date start from the last checkpoint before
+ * the date and replay only the transactions after it, so their cost does not grow with the age of
+ * the portfolio. Adding a transaction before a checkpoint drops that checkpoint and the later
+ * ones.
+ *
+ * <p>Each stock also has a position index, its transactions by date with the net quantity held
+ * after each, and the date of its latest sell. The quantity of one stock held on a date is then
+ * a binary search in its own transactions, whatever the size of the ledger.
+ *
+ * <p>Each transaction keeps the price it was made at, and the cost basis of the transactions so
+ * far is kept as a running total, so the cost basis on a date is a lookup rather than a price
+ * query per transaction. Transactions recorded before the price was kept have a price of NaN, and
+ * the cost basis looks up the price of such a buy the first time it reaches it. The price found is
+ * kept in the ledger only, the portfolio file is not changed.
+ */
+public class PortfolioLedger {
+
+  /**
+   * Number of the transactions between two holdings checkpoints.
+   */
+  public static final int CHECKPOINT_INTERVAL = 256;
+
+  /**
+   * Header of the portfolio csv files.
+   */
+  public static final String CSV_HEADER =
+      "Symbol,Quantity,Date,Transaction-Type,Commission-Fee,Price";
+
+  /**
+   * Finds the price of a transaction recorded without one.
+   */
+  public interface PriceLookup {
+
+    /**
+     * Get the price of a stock on a date.
+     *
+     * @param symbol symbol of the stock.
+     * @param date   date of the transaction.
+     * @return price per share on the date.
+     * @throws IOException if the price cannot be read.
+     */
+    double getPrice(String symbol, LocalDate date) throws IOException;
+  }
+
+  private final List<String> symbols = new ArrayList<>();
+  private final Map<String, Integer> symbolIds = new HashMap<>();
+  private final List<Position> positions = new ArrayList<>();
+
+  private int[] symbolIndexes = new int[16];
+  private int[] epochDays = new int[16];
+  private double[] quantities = new double[16];
+  private boolean[] sells = new boolean[16];
+  private double[] commissionFees = new double[16];
+  private double[] prices = new double[16];
+  private int size;
+  private int missingPrices;
+
+  //costTotals[i] is the cost basis of the first i + 1 transactions, valid below costTotalsValid
+  private double[] costTotals = new double[16];
+  private int costTotalsValid;
+
+  //checkpoint k holds the holdings after the first (k + 1) * CHECKPOINT_INTERVAL transactions
+  private final List<double[]> checkpointHeld = new ArrayList<>();
+  private final List<boolean[]> checkpointTraded = new ArrayList<>();
+
+  //the transactions of one stock by date, with the net quantity held after each of them
+  private static final class Position {
+
+    private int[] epochDays = new int[4];
+    private double[] netQuantities = new double[4];
+    private int size;
+    private int lastSellDay = Integer.MIN_VALUE;
+
+    private int countOnOrBefore(int epochDay) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (epochDays[mid] <= epochDay) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    private void add(int epochDay, double quantity, boolean sell) {
+      if (size == epochDays.length) {
+        epochDays = Arrays.copyOf(epochDays, size * 2);
+        netQuantities = Arrays.copyOf(netQuantities, size * 2);
+      }
+      double change = sell ? -quantity : quantity;
+      int position = countOnOrBefore(epochDay);
+      int moved = size - position;
+      System.arraycopy(epochDays, position, epochDays, position + 1, moved);
+      System.arraycopy(netQuantities, position, netQuantities, position + 1, moved);
+      epochDays[position] = epochDay;
+      netQuantities[position] = (position == 0 ? 0 : netQuantities[position - 1]) + change;
+      //a back dated transaction changes the quantity held after it
+      for (int i = position + 1; i <= size; i++) {
+        netQuantities[i] += change;
+      }
+      size++;
+      if (sell) {
+        lastSellDay = Math.max(lastSellDay, epochDay);
+      }
+    }
+
+    private double quantityHeld(int epochDay) {
+      int count = countOnOrBefore(epochDay);
+      return count == 0 ? 0 : netQuantities[count - 1];
+    }
+  }
+
+  //state of the portfolio file the ledger was last synchronized with
+  private FileTime modified;
+  private long length = -1;
+
+  /**
+   * Read the ledger from a portfolio csv file of the format
+   * Symbol,Quantity,Date,Transaction-Type,Commission-Fee,Price. Blank rows and rows that are
+   * neither a buy nor a sell are skipped. Rows written before the price column was added have a
+   * price of NaN.
+   *
+   * @param file path to the portfolio file.
+   * @return the ledger of the portfolio, synchronized with the file.
+   * @throws IOException on file handling errors, or a row that cannot be parsed.
+   */
+  public static PortfolioLedger read(Path file) throws IOException {
+    PortfolioLedger ledger = new PortfolioLedger();
+    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+    try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String row;
+      //skip header
+      br.readLine();
+      while ((row = br.readLine()) != null) {
+        if (row.isBlank()) {
+          continue;
+        }
+        String[] values = row.split(",");
+        if (values.length < 5 || !(values[3].equals("buy") || values[3].equals("sell"))) {
+          continue;
+        }
+        try {
+          ledger.append(values[0], Double.parseDouble(values[1]), LocalDate.parse(values[2]),
+              values[3].equals("sell"), Double.parseDouble(values[4]),
+              values.length > 5 ? Double.parseDouble(values[5]) : Double.NaN);
+        } catch (NumberFormatException | DateTimeParseException e) {
+          throw new IOException("Invalid transaction in portfolio " + file + ": " + row);
+        }
+      }
+    }
+    ledger.modified = attributes.lastModifiedTime();
+    ledger.length = attributes.size();
+    return ledger;
+  }
+
+  /**
+   * Check if the ledger holds all the transactions of the portfolio file, that is the file has not
+   * been changed other than through the ledger since it was read.
+   *
+   * @param file path to the portfolio file.
+   * @return true if the ledger is up to date with the file.
+   * @throws IOException on file handling errors.
+   */
+  public boolean isCurrent(Path file) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+    return attributes.size() == length && attributes.lastModifiedTime().equals(modified);
+  }
+
+  /**
+   * Record that the portfolio file holds the same transactions as the ledger, after a transaction
+   * was appended to both.
+   *
+   * @param file path to the portfolio file.
+   * @throws IOException on file handling errors.
+   */
+  public void markCurrent(Path file) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+    modified = attributes.lastModifiedTime();
+    length = attributes.size();
+  }
+
+  private int symbolIndex(String symbol) {
+    Integer index = symbolIds.get(symbol);
+    if (index == null) {
+      index = symbols.size();
+      symbols.add(symbol);
+      symbolIds.put(symbol, index);
+      positions.add(new Position());
+    }
+    return index;
+  }
+
+  /**
+   * Add a transaction to the ledger, after the other transactions on the same date.
+   *
+   * @param symbol        symbol of the stock.
+   * @param quantity      quantity bought or sold.
+   * @param date          date of the transaction.
+   * @param sell          true for a sell, false for a buy.
+   * @param commissionFee commission fee of the transaction.
+   * @param price         price per share the stock was bought or sold at, NaN if not known.
+   */
+  public void append(String symbol, double quantity, LocalDate date, boolean sell,
+      double commissionFee, double price) {
+    if (size == epochDays.length) {
+      int capacity = size * 2;
+      symbolIndexes = Arrays.copyOf(symbolIndexes, capacity);
+      epochDays = Arrays.copyOf(epochDays, capacity);
+      quantities = Arrays.copyOf(quantities, capacity);
+      sells = Arrays.copyOf(sells, capacity);
+      commissionFees = Arrays.copyOf(commissionFees, capacity);
+      prices = Arrays.copyOf(prices, capacity);
+      costTotals = Arrays.copyOf(costTotals, capacity);
+    }
+    int day = (int) date.toEpochDay();
+    //transactions mostly come in date order, so this is usually the end of the arrays
+    int position = countOnOrBefore(day);
+    int moved = size - position;
+    if (moved > 0) {
+      System.arraycopy(symbolIndexes, position, symbolIndexes, position + 1, moved);
+      System.arraycopy(epochDays, position, epochDays, position + 1, moved);
+      System.arraycopy(quantities, position, quantities, position + 1, moved);
+      System.arraycopy(sells, position, sells, position + 1, moved);
+      System.arraycopy(commissionFees, position, commissionFees, position + 1, moved);
+      System.arraycopy(prices, position, prices, position + 1, moved);
+    }
+    //the checkpoints after the new transaction do not include it
+    int valid = position / CHECKPOINT_INTERVAL;
+    if (checkpointHeld.size() > valid) {
+      checkpointHeld.subList(valid, checkpointHeld.size()).clear();
+      checkpointTraded.subList(valid, checkpointTraded.size()).clear();
+    }
+    costTotalsValid = Math.min(costTotalsValid, position);
+    symbolIndexes[position] = symbolIndex(symbol);
+    positions.get(symbolIndexes[position]).add(day, quantity, sell);
+    epochDays[position] = day;
+    quantities[position] = quantity;
+    sells[position] = sell;
+    commissionFees[position] = commissionFee;
+    prices[position] = price;
+    if (Double.isNaN(price)) {
+      missingPrices++;
+    }
+    size++;
+  }
+
+  private int countOnOrBefore(int epochDay) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (epochDays[mid] <= epochDay) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  //replay the transactions in the range on to the holdings of each symbol
+  private void replay(int from, int to, double[] held, boolean[] traded) {
+    for (int i = from; i < to; i++) {
+      held[symbolIndexes[i]] += sells[i] ? -quantities[i] : quantities[i];
+      traded[symbolIndexes[i]] = true;
+    }
+  }
+
+  //holdings after the first count transactions, from the last checkpoint at or before it
+  private int restore(int count, double[] held, boolean[] traded) {
+    int reached = count / CHECKPOINT_INTERVAL;
+    while (checkpointHeld.size() < reached) {
+      int k = checkpointHeld.size();
+      double[] checkpoint = new double[symbols.size()];
+      boolean[] checkpointSeen = new boolean[symbols.size()];
+      if (k > 0) {
+        double[] previous = checkpointHeld.get(k - 1);
+        System.arraycopy(previous, 0, checkpoint, 0, previous.length);
+        System.arraycopy(checkpointTraded.get(k - 1), 0, checkpointSeen, 0, previous.length);
+      }
+      replay(k * CHECKPOINT_INTERVAL, (k + 1) * CHECKPOINT_INTERVAL, checkpoint, checkpointSeen);
+      checkpointHeld.add(checkpoint);
+      checkpointTraded.add(checkpointSeen);
+    }
+    if (reached == 0) {
+      return 0;
+    }
+    double[] checkpoint = checkpointHeld.get(reached - 1);
+    System.arraycopy(checkpoint, 0, held, 0, checkpoint.length);
+    System.arraycopy(checkpointTraded.get(reached - 1), 0, traded, 0, checkpoint.length);
+    return reached * CHECKPOINT_INTERVAL;
+  }
+
+  /**
+   * Get the number of the transactions made on or before a date. These are the transactions at
+   * the positions below the count.
+   *
+   * @param date date to count the transactions up to.
+   * @return number of the transactions on or before the date.
+   */
+  public int countOnOrBefore(LocalDate date) {
+    return countOnOrBefore((int) date.toEpochDay());
+  }
+
+  /**
+   * Get the number of the transactions in the ledger.
+   *
+   * @return number of the transactions.
+   */
+  public int size() {
+    return size;
+  }
+
+  public String getSymbol(int index) {
+    return symbols.get(symbolIndexes[index]);
+  }
+
+  public LocalDate getDate(int index) {
+    return LocalDate.ofEpochDay(epochDays[index]);
+  }
+
+  public double getQuantity(int index) {
+    return quantities[index];
+  }
+
+  public boolean isSell(int index) {
+    return sells[index];
+  }
+
+  public double getCommissionFee(int index) {
+    return commissionFees[index];
+  }
+
+  public double getPrice(int index) {
+    return prices[index];
+  }
+
+  /**
+   * Check if any transaction in the ledger was recorded without its price.
+   *
+   * @return true if the price of a transaction is not known.
+   */
+  public boolean hasMissingPrices() {
+    return missingPrices > 0;
+  }
+
+  /**
+   * Get the cost basis of the portfolio on a date, that is the price paid for all the stocks
+   * bought on or before the date and the commission fee of all the transactions up to it.
+   *
+   * @param date date of the cost basis.
+   * @return the cost basis on the date.
+   * @throws IllegalStateException if the price of a buy on or before the date is not known.
+   */
+  public double getCostBasis(LocalDate date) {
+    try {
+      return getCostBasis(date, (symbol, day) -> {
+        throw new IllegalStateException("No price recorded for the buy of " + symbol + " on "
+            + day);
+      });
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Get the cost basis of the portfolio on a date, looking up the price of the buys recorded
+   * without one.
+   *
+   * @param date   date of the cost basis.
+   * @param lookup finds the price of a buy recorded without one.
+   * @return the cost basis on the date.
+   * @throws IOException if the price of a buy cannot be read.
+   */
+  public double getCostBasis(LocalDate date, PriceLookup lookup) throws IOException {
+    int count = countOnOrBefore(date);
+    for (int i = costTotalsValid; i < count; i++) {
+      double cost = commissionFees[i];
+      if (!sells[i]) {
+        if (Double.isNaN(prices[i])) {
+          prices[i] = lookup.getPrice(getSymbol(i), getDate(i));
+          missingPrices--;
+        }
+        cost += prices[i] * quantities[i];
+      }
+      costTotals[i] = (i == 0 ? 0 : costTotals[i - 1]) + cost;
+      costTotalsValid = i + 1;
+    }
+    return count == 0 ? 0 : costTotals[count - 1];
+  }
+
+  /**
+   * Get the symbols of all the stocks ever traded in the portfolio.
+   *
+   * @return symbols in the order they were first seen.
+   */
+  public Set<String> getSymbols() {
+    return new LinkedHashSet<>(symbols);
+  }
+
+  /**
+   * Get the quantity of each stock held on a date. A stock traded on or before the date is
+   * included even if none of it is held any more.
+   *
+   * @param date date of the holdings.
+   * @return map of the symbol to the quantity held.
+   */
+  public Map<String, Double> getHoldings(LocalDate date) {
+    double[] held = new double[symbols.size()];
+    boolean[] traded = new boolean[symbols.size()];
+    int count = countOnOrBefore(date);
+    replay(restore(count, held, traded), count, held, traded);
+    Map<String, Double> holdings = new HashMap<>();
+    for (int i = 0; i < held.length; i++) {
+      if (traded[i]) {
+        holdings.put(symbols.get(i), held[i]);
+      }
+    }
+    return holdings;
+  }
+
+  /**
+   * Get the quantity of a stock held on a date.
+   *
+   * @param symbol symbol of the stock.
+   * @param date   date of the holding.
+   * @return quantity held, 0 if the stock was not traded on or before the date.
+   */
+  public double getQuantityHeld(String symbol, LocalDate date) {
+    Integer symbolIndex = symbolIds.get(symbol);
+    if (symbolIndex == null) {
+      return 0;
+    }
+    return positions.get(symbolIndex).quantityHeld((int) date.toEpochDay());
+  }
+
+  /**
+   * Get the date of the latest sell of a stock.
+   *
+   * @param symbol symbol of the stock.
+   * @return date of the latest sell, null if the stock was never sold.
+   */
+  public LocalDate getLastSellDate(String symbol) {
+    Integer symbolIndex = symbolIds.get(symbol);
+    if (symbolIndex == null) {
+      return null;
+    }
+    int lastSellDay = positions.get(symbolIndex).lastSellDay;
+    return lastSellDay == Integer.MIN_VALUE ? null : LocalDate.ofEpochDay(lastSellDay);
+  }
+}
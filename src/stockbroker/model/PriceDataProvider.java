@@ -0,0 +1,49 @@
+package stockbroker.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The interface for a source of stock price data. All the data is provided as csv streams in the
+ * formats of the alphavantage API, so that the models can cache and parse them the same way for
+ * every source. The streams have to be closed by the caller.
+ */
+public interface PriceDataProvider {
+
+  /**
+   * Open the daily price history of a stock. The csv has the header
+   * timestamp,open,high,low,close,volume with the latest day first.
+   *
+   * @param symbol symbol of the stock.
+   * @param full   true for the full history, false for only the recent trading days.
+   * @return stream of the csv data.
+   * @throws IOException if the data cannot be read.
+   */
+  InputStream openDailySeries(String symbol, boolean full) throws IOException;
+
+  /**
+   * Open the latest quote of a stock. The csv has the header
+   * symbol,open,high,low,price,volume,latestDay,previousClose,change,changePercent.
+   *
+   * @param symbol symbol of the stock.
+   * @return stream of the csv data.
+   * @throws IOException if the data cannot be read.
+   */
+  InputStream openQuote(String symbol) throws IOException;
+
+  /**
+   * Open the listing of all the stocks. The csv has the header
+   * symbol,name,exchange,assetType,ipoDate,delistingDate,status.
+   *
+   * @return stream of the csv data.
+   * @throws IOException if the data cannot be read.
+   */
+  InputStream openListing() throws IOException;
+
+  /**
+   * Get the number of requests the provider allows in a minute.
+   *
+   * @return maximum number of requests in a minute.
+   */
+  int getRequestsPerMinute();
+}
@@ -0,0 +1,138 @@
+package stockbroker.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Validates a daily price history before it is written to the cache. A valid history has the
+ * header timestamp,open,high,low,close,volume followed by at least one row, every row has six
+ * numeric columns after a date, and the dates are strictly decreasing. Anything else, such as the
+ * notes and error messages the API returns in place of data, is rejected. A note that the request
+ * limit was reached is rejected as {@link ThrottledException}, since it says nothing about the
+ * data of the symbol.
+ */
+public class PriceDataValidator {
+
+  /**
+   * Header of a daily price history.
+   */
+  public static final String HEADER = "timestamp,open,high,low,close,volume";
+
+  //lines of a rejected response searched for a request limit note
+  private static final int NOTE_LINES = 8;
+
+  /**
+   * Rejection of a response telling that the request limit of the provider was reached, rather
+   * than a history of the symbol.
+   */
+  public static class ThrottledException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor of the exception.
+     *
+     * @param message detail message.
+     */
+    public ThrottledException(String message) {
+      super(message);
+    }
+  }
+
+  /**
+   * Validate the lines of a daily price history.
+   *
+   * @param symbol symbol of the stock, for the error message.
+   * @param lines  lines of the history including the header.
+   * @return number of rows in the history.
+   * @throws IOException if the history is not valid.
+   */
+  public int validate(String symbol, List<String> lines) throws IOException {
+    Iterator<String> it = lines.iterator();
+    return validate(symbol, () -> it.hasNext() ? it.next() : null);
+  }
+
+  /**
+   * Validate a daily price history file.
+   *
+   * @param symbol symbol of the stock, for the error message.
+   * @param file   path of the file.
+   * @return number of rows in the history.
+   * @throws IOException if the history is not valid or cannot be read.
+   */
+  public int validate(String symbol, Path file) throws IOException {
+    try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      return validate(symbol, br::readLine);
+    }
+  }
+
+  private interface LineSource {
+    String next() throws IOException;
+  }
+
+  private int validate(String symbol, LineSource lines) throws IOException {
+    String header = lines.next();
+    if (header == null || !header.trim().equals(HEADER)) {
+      //the API answers json instead of csv when the request limit is reached
+      String line = header;
+      for (int i = 0; line != null && i < NOTE_LINES; i++, line = lines.next()) {
+        if (line.contains("\"Note\"") || line.contains("\"Information\"")) {
+          throw new ThrottledException("Price data request for symbol: " + symbol
+              + " was throttled, " + shorten(line.trim()));
+        }
+      }
+      throw invalid(symbol, "unexpected header " + shorten(header));
+    }
+
+    int rows = 0;
+    LocalDate previous = null;
+    String row;
+    while ((row = lines.next()) != null) {
+      row = row.trim();
+      if (row.isEmpty()) {
+        continue;
+      }
+      String[] values = row.split(",");
+      if (values.length != 6) {
+        throw invalid(symbol, "expected 6 columns in row " + shorten(row));
+      }
+      LocalDate date;
+      try {
+        date = LocalDate.parse(values[0]);
+        for (int i = 1; i < values.length; i++) {
+          Double.parseDouble(values[i]);
+        }
+      } catch (DateTimeParseException | NumberFormatException e) {
+        throw invalid(symbol, "unparseable row " + shorten(row));
+      }
+      if (previous != null && !date.isBefore(previous)) {
+        throw invalid(symbol, "dates out of order at " + date);
+      }
+      previous = date;
+      rows++;
+    }
+
+    if (rows == 0) {
+      throw invalid(symbol, "no rows");
+    }
+    return rows;
+  }
+
+  private static IOException invalid(String symbol, String reason) {
+    return new IOException("Invalid price data for symbol: " + symbol + ", " + reason);
+  }
+
+  private static String shorten(String text) {
+    if (text == null) {
+      return "<empty>";
+    }
+    return text.length() <= 80 ? text : text.substring(0, 80) + "...";
+  }
+}
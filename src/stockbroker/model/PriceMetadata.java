@@ -0,0 +1,129 @@
+package stockbroker.model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Properties;
+
+/**
+ * Freshness of the cached price history of a symbol: the first and the last date with a price and
+ * the time the history was last fetched from the provider. A date with no cached price can only
+ * have a price at the provider if it is after the last date of the history and its price was not
+ * yet published when the history was fetched, every other missing date can be rejected without a
+ * request. The price of a trading day is taken as published a few hours after the close of the
+ * exchange, in the exchange's time zone.
+ */
+public class PriceMetadata {
+
+  private static final ZoneId EXCHANGE_ZONE = ZoneId.of("America/New_York");
+  private static final LocalTime MARKET_CLOSE = LocalTime.of(16, 0);
+  //time the provider may take to publish the prices of a session after the close
+  private static final Duration PUBLICATION_LAG = Duration.ofHours(6);
+
+  private final LocalDate firstDate;
+  private final LocalDate lastDate;
+  private final Instant lastFetched;
+
+  /**
+   * Constructor of the price metadata.
+   *
+   * @param firstDate   first date with a price, null if the history is empty.
+   * @param lastDate    last date with a price, null if the history is empty.
+   * @param lastFetched time the history was last fetched from the provider.
+   */
+  public PriceMetadata(LocalDate firstDate, LocalDate lastDate, Instant lastFetched) {
+    this.firstDate = firstDate;
+    this.lastDate = lastDate;
+    this.lastFetched = lastFetched;
+  }
+
+  /**
+   * Create the metadata of a price series.
+   *
+   * @param series      cached price series of the symbol.
+   * @param lastFetched time the series was last fetched from the provider.
+   * @return metadata of the series.
+   */
+  public static PriceMetadata of(IPriceSeries series, Instant lastFetched) {
+    return new PriceMetadata(series.getFirstDate(), series.getLastDate(), lastFetched);
+  }
+
+  /**
+   * Read the metadata from a properties file.
+   *
+   * @param file properties file to read.
+   * @return metadata read from the file.
+   * @throws IOException on file handling errors or a malformed file.
+   */
+  public static PriceMetadata read(Path file) throws IOException {
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    }
+    try {
+      String first = properties.getProperty("firstDate", "");
+      String last = properties.getProperty("lastDate", "");
+      return new PriceMetadata(first.isEmpty() ? null : LocalDate.parse(first),
+          last.isEmpty() ? null : LocalDate.parse(last),
+          Instant.parse(properties.getProperty("lastFetched")));
+    } catch (RuntimeException e) {
+      throw new IOException("Invalid price metadata file: " + file, e);
+    }
+  }
+
+  /**
+   * Write the metadata to a properties file.
+   *
+   * @param file properties file to write.
+   * @throws IOException on file handling errors.
+   */
+  public void write(Path file) throws IOException {
+    Properties properties = new Properties();
+    properties.setProperty("firstDate", firstDate == null ? "" : firstDate.toString());
+    properties.setProperty("lastDate", lastDate == null ? "" : lastDate.toString());
+    properties.setProperty("lastFetched", lastFetched.toString());
+    try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      properties.store(writer, null);
+    }
+  }
+
+  public LocalDate getFirstDate() {
+    return firstDate;
+  }
+
+  public LocalDate getLastDate() {
+    return lastDate;
+  }
+
+  public Instant getLastFetched() {
+    return lastFetched;
+  }
+
+  /**
+   * Check if the provider may have a price on a date missing from the cached history. Dates before
+   * the first date or inside the history are never filled later, and dates after the last date
+   * whose prices were already published at the last fetch were not trading days.
+   *
+   * @param date date with no cached price.
+   * @return true if the history has to be fetched again to look up the date.
+   */
+  public boolean needsFetch(LocalDate date) {
+    if (lastDate == null) {
+      return true;
+    }
+    if (!date.isAfter(lastDate)) {
+      return false;
+    }
+    Instant published = date.atTime(MARKET_CLOSE).atZone(EXCHANGE_ZONE).plus(PUBLICATION_LAG)
+        .toInstant();
+    return lastFetched.isBefore(published);
+  }
+}
@@ -0,0 +1,193 @@
+package stockbroker.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * In-memory daily price history of a single stock. The trading days are held as a sorted array of
+ * epoch days along with a parallel array of closing prices, so that the price on a date can be
+ * found with a binary search instead of scanning the cached csv file.
+ */
+public class PriceSeries implements IPriceSeries {
+
+  private final String symbol;
+  private final int[] epochDays;
+  private final double[] closePrices;
+
+  /**
+   * Constructor of the price series. The arrays must be sorted in ascending order of date and must
+   * be of the same length.
+   *
+   * @param symbol      symbol of the stock.
+   * @param epochDays   trading days as epoch days in ascending order.
+   * @param closePrices closing price on each of the trading days.
+   */
+  public PriceSeries(String symbol, int[] epochDays, double[] closePrices) {
+    if (epochDays.length != closePrices.length) {
+      throw new IllegalArgumentException("Dates and prices should be of the same length");
+    }
+    this.symbol = symbol;
+    this.epochDays = epochDays;
+    this.closePrices = closePrices;
+  }
+
+  /**
+   * Read the price series from a cached csv file of the format
+   * timestamp,open,high,low,close,volume. Rows that cannot be parsed are skipped.
+   *
+   * @param symbol symbol of the stock.
+   * @param file   path to the cached csv file.
+   * @return the price series sorted by date.
+   * @throws IOException on file handling errors.
+   */
+  public static PriceSeries fromCsv(String symbol, Path file) throws IOException {
+    try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      return fromCsv(symbol, br);
+    }
+  }
+
+  /**
+   * Read the price series from csv data of the format timestamp,open,high,low,close,volume. Rows
+   * that cannot be parsed are skipped.
+   *
+   * @param symbol symbol of the stock.
+   * @param br     reader of the csv data, including the header.
+   * @return the price series sorted by date.
+   * @throws IOException on read errors.
+   */
+  public static PriceSeries fromCsv(String symbol, BufferedReader br) throws IOException {
+    int[] days = new int[1024];
+    double[] prices = new double[1024];
+    int size = 0;
+    boolean descending = true;
+
+    String row;
+    //skip header
+    br.readLine();
+    while ((row = br.readLine()) != null) {
+      String[] values = row.split(",");
+      if (values.length < 5) {
+        continue;
+      }
+      int day;
+      double close;
+      try {
+        day = (int) LocalDate.parse(values[0]).toEpochDay();
+        close = Double.parseDouble(values[4]);
+      } catch (DateTimeParseException | NumberFormatException e) {
+        continue;
+      }
+      if (size == days.length) {
+        days = Arrays.copyOf(days, size * 2);
+        prices = Arrays.copyOf(prices, size * 2);
+      }
+      if (size > 0 && days[size - 1] <= day) {
+        descending = false;
+      }
+      days[size] = day;
+      prices[size] = close;
+      size++;
+    }
+
+    //the api returns the latest day first, store it in ascending order
+    int[] epochDays = new int[size];
+    double[] closePrices = new double[size];
+    if (descending) {
+      for (int i = 0; i < size; i++) {
+        epochDays[i] = days[size - 1 - i];
+        closePrices[i] = prices[size - 1 - i];
+      }
+    } else {
+      Integer[] order = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      final int[] unsortedDays = days;
+      Arrays.sort(order, (a, b) -> Integer.compare(unsortedDays[a], unsortedDays[b]));
+      for (int i = 0; i < size; i++) {
+        epochDays[i] = days[order[i]];
+        closePrices[i] = prices[order[i]];
+      }
+    }
+    return new PriceSeries(symbol, epochDays, closePrices);
+  }
+
+  /**
+   * Append the trading days of a newer series after the last day of an older one. Days of the
+   * newer series on or before the last day of the older series are ignored.
+   *
+   * @param older series to append to.
+   * @param newer series with the days to append.
+   * @return the combined series.
+   */
+  public static PriceSeries append(IPriceSeries older, IPriceSeries newer) {
+    int lastDay = older.size() == 0 ? Integer.MIN_VALUE : older.getEpochDay(older.size() - 1);
+    int start = 0;
+    while (start < newer.size() && newer.getEpochDay(start) <= lastDay) {
+      start++;
+    }
+    int size = older.size() + newer.size() - start;
+    int[] epochDays = new int[size];
+    double[] closePrices = new double[size];
+    for (int i = 0; i < older.size(); i++) {
+      epochDays[i] = older.getEpochDay(i);
+      closePrices[i] = older.getClosePriceAt(i);
+    }
+    for (int i = start; i < newer.size(); i++) {
+      epochDays[older.size() + i - start] = newer.getEpochDay(i);
+      closePrices[older.size() + i - start] = newer.getClosePriceAt(i);
+    }
+    return new PriceSeries(older.getSymbol(), epochDays, closePrices);
+  }
+
+  @Override
+  public String getSymbol() {
+    return symbol;
+  }
+
+  @Override
+  public int size() {
+    return epochDays.length;
+  }
+
+  @Override
+  public int getEpochDay(int index) {
+    return epochDays[index];
+  }
+
+  @Override
+  public double getClosePriceAt(int index) {
+    return closePrices[index];
+  }
+
+  @Override
+  public boolean hasPriceOn(LocalDate date) {
+    return Arrays.binarySearch(epochDays, (int) date.toEpochDay()) >= 0;
+  }
+
+  @Override
+  public double getClosePrice(LocalDate date) throws IllegalArgumentException {
+    int index = Arrays.binarySearch(epochDays, (int) date.toEpochDay());
+    if (index < 0) {
+      throw new IllegalArgumentException(
+          "Price data for symbol: " + symbol + " not found on " + date);
+    }
+    return closePrices[index];
+  }
+
+  @Override
+  public LocalDate getFirstDate() {
+    return epochDays.length == 0 ? null : LocalDate.ofEpochDay(epochDays[0]);
+  }
+
+  @Override
+  public LocalDate getLastDate() {
+    return epochDays.length == 0 ? null : LocalDate.ofEpochDay(epochDays[epochDays.length - 1]);
+  }
+}
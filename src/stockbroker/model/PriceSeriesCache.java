@@ -0,0 +1,253 @@
+package stockbroker.model;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Bounded cache of price series by symbol. The cache holds at most a given number of series and a
+ * given number of bytes of price records, and evicts the least recently used series once either
+ * limit is crossed. The hits, misses, loads and evictions are counted so that the cache can be
+ * tuned for a session.
+ *
+ * <p>A series is loaded outside the lock of the cache, so lookups of other symbols are not held up
+ * by a slow load. Concurrent lookups of a symbol being loaded wait for that load.
+ *
+ * <p>A series dropped from the cache, by eviction or invalidation, is released so that its price
+ * file can be replaced, and can still be read by the callers holding it.
+ */
+public class PriceSeriesCache {
+
+  /**
+   * Loads the price series of a symbol on a cache miss.
+   */
+  public interface Loader {
+
+    /**
+     * Load the price series of a symbol.
+     *
+     * @param symbol symbol of the stock.
+     * @return the price series.
+     * @throws IOException on file handling errors.
+     */
+    IPriceSeries load(String symbol) throws IOException;
+  }
+
+  /**
+   * Number of bytes held for each trading day of a series, a date and a closing price.
+   */
+  public static final int BYTES_PER_DAY = 12;
+
+  private final int maxEntries;
+  private final long maxBytes;
+  private final LinkedHashMap<String, IPriceSeries> entries;
+  private long currentBytes;
+  //loads in progress by symbol, dropped by invalidate so a stale load is not kept
+  private final Map<String, CompletableFuture<IPriceSeries>> loading = new HashMap<>();
+
+  private long hitCount;
+  private long missCount;
+  private long loadCount;
+  private long evictionCount;
+
+  /**
+   * Constructor of the cache.
+   *
+   * @param maxEntries maximum number of series to hold.
+   * @param maxBytes   maximum number of bytes of price records to hold.
+   */
+  public PriceSeriesCache(int maxEntries, long maxBytes) {
+    if (maxEntries <= 0 || maxBytes <= 0) {
+      throw new IllegalArgumentException("Cache limits should be greater than 0");
+    }
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+    //access order, so that the eldest entry is the least recently used one
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  private static long weigh(IPriceSeries series) {
+    return (long) series.size() * BYTES_PER_DAY;
+  }
+
+  /**
+   * Get the price series of a symbol, loading it on a miss.
+   *
+   * @param symbol symbol of the stock.
+   * @param loader loads the series if it is not in the cache.
+   * @return the price series.
+   * @throws IOException on file handling errors of the loader.
+   */
+  public IPriceSeries get(String symbol, Loader loader) throws IOException {
+    CompletableFuture<IPriceSeries> load;
+    boolean mine;
+    synchronized (this) {
+      IPriceSeries series = entries.get(symbol);
+      if (series != null) {
+        hitCount++;
+        return series;
+      }
+      missCount++;
+      load = loading.get(symbol);
+      mine = load == null;
+      if (mine) {
+        load = new CompletableFuture<>();
+        loading.put(symbol, load);
+      }
+    }
+    if (!mine) {
+      return await(symbol, load);
+    }
+
+    IPriceSeries series;
+    try {
+      series = loader.load(symbol);
+    } catch (Throwable e) {
+      synchronized (this) {
+        loading.remove(symbol, load);
+      }
+      load.completeExceptionally(e);
+      throw e;
+    }
+    synchronized (this) {
+      loadCount++;
+      if (loading.remove(symbol, load)) {
+        put(symbol, series);
+      } else {
+        series.release();
+      }
+    }
+    load.complete(series);
+    return series;
+  }
+
+  //wait outside the lock for the load of another caller
+  private IPriceSeries await(String symbol, CompletableFuture<IPriceSeries> load)
+      throws IOException {
+    try {
+      return load.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while loading " + symbol);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw (RuntimeException) cause;
+    }
+  }
+
+  private void put(String symbol, IPriceSeries series) {
+    IPriceSeries old = entries.put(symbol, series);
+    if (old != null) {
+      currentBytes -= weigh(old);
+      old.release();
+    }
+    currentBytes += weigh(series);
+
+    //evict least recently used, but always keep the series just loaded
+    Iterator<Map.Entry<String, IPriceSeries>> it = entries.entrySet().iterator();
+    while ((entries.size() > maxEntries || currentBytes > maxBytes) && entries.size() > 1) {
+      Map.Entry<String, IPriceSeries> eldest = it.next();
+      currentBytes -= weigh(eldest.getValue());
+      eldest.getValue().release();
+      it.remove();
+      evictionCount++;
+    }
+  }
+
+  /**
+   * Check if the price series of a symbol is held in the cache. This is not counted as a lookup.
+   *
+   * @param symbol symbol of the stock.
+   * @return true if the series is in the cache.
+   */
+  public synchronized boolean contains(String symbol) {
+    return entries.containsKey(symbol);
+  }
+
+  /**
+   * Remove the price series of a symbol, so that it is loaded again on next lookup. The series is
+   * released, so its price file can be replaced.
+   *
+   * @param symbol symbol of the stock.
+   */
+  public synchronized void invalidate(String symbol) {
+    //a load already in progress may have read the old files, it is not kept
+    loading.remove(symbol);
+    IPriceSeries old = entries.remove(symbol);
+    if (old != null) {
+      currentBytes -= weigh(old);
+      old.release();
+    }
+  }
+
+  /**
+   * Get the number of series held in the cache.
+   *
+   * @return number of series.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Get the number of bytes of price records held in the cache.
+   *
+   * @return number of bytes.
+   */
+  public synchronized long getWeight() {
+    return currentBytes;
+  }
+
+  /**
+   * Get the number of lookups that were found in the cache.
+   *
+   * @return number of hits.
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Get the number of lookups that were not found in the cache.
+   *
+   * @return number of misses.
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Get the number of series loaded in to the cache.
+   *
+   * @return number of loads.
+   */
+  public synchronized long getLoadCount() {
+    return loadCount;
+  }
+
+  /**
+   * Get the number of series evicted from the cache.
+   *
+   * @return number of evictions.
+   */
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "PriceSeriesCache[size=" + entries.size() + ", bytes=" + currentBytes + ", hits="
+        + hitCount + ", misses=" + missCount + ", loads=" + loadCount + ", evictions="
+        + evictionCount + "]";
+  }
+}
@@ -0,0 +1,219 @@
+package stockbroker.model;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+/**
+ * Store of the cached price histories in a directory. The histories are downloaded as csv files
+ * named {symbol}.csv, and are converted to a binary price file the first time they are read. Later
+ * reads map the binary file directly without parsing the csv again. The files are always replaced
+ * through {@link AtomicFiles}, so a reader never sees a partial file.
+ *
+ * <p>The binary file is either a {@link MappedPriceSeries} file {symbol}.bin, which keeps the csv
+ * alongside it, or a compressed {@link ArchivedPriceSeries} file {symbol}.sbz, which replaces the
+ * csv once converted.
+ */
+public class PriceStore {
+
+  /**
+   * Format of the binary price files of a store.
+   */
+  public enum Format {
+    /**
+     * Fixed width records, mapped as they are.
+     */
+    BINARY(".bin"),
+    /**
+     * Delta encoded and deflated blocks of records.
+     */
+    ARCHIVE(".sbz");
+
+    private final String extension;
+
+    Format(String extension) {
+      this.extension = extension;
+    }
+  }
+
+  private final Path directory;
+  private final Format format;
+
+  /**
+   * Constructor of the price store with fixed width binary price files.
+   *
+   * @param directory directory holding the cached price files.
+   */
+  public PriceStore(Path directory) {
+    this(directory, Format.BINARY);
+  }
+
+  /**
+   * Constructor of the price store.
+   *
+   * @param directory directory holding the cached price files.
+   * @param format    format of the binary price files.
+   */
+  public PriceStore(Path directory, Format format) {
+    this.directory = directory;
+    this.format = format;
+  }
+
+  /**
+   * Get the path of the downloaded csv file of a symbol.
+   *
+   * @param symbol symbol of the stock.
+   * @return path of the csv file.
+   */
+  public Path csvPath(String symbol) {
+    return directory.resolve(symbol + ".csv");
+  }
+
+  /**
+   * Get the path of the binary price file of a symbol, in the format of the store.
+   *
+   * @param symbol symbol of the stock.
+   * @return path of the binary file.
+   */
+  public Path binaryPath(String symbol) {
+    return directory.resolve(symbol + format.extension);
+  }
+
+  /**
+   * Check if there is any cached price history for a symbol.
+   *
+   * @param symbol symbol of the stock.
+   * @return true if a csv or binary price file exists.
+   */
+  public boolean exists(String symbol) {
+    return Files.exists(csvPath(symbol)) || Files.exists(binaryPath(symbol));
+  }
+
+  /**
+   * Load the price series of a symbol. A csv file newer than the binary file is converted first.
+   *
+   * @param symbol symbol of the stock.
+   * @return the memory mapped price series.
+   * @throws IOException if there is no cached price history or on file handling errors.
+   */
+  public IPriceSeries load(String symbol) throws IOException {
+    Path csv = csvPath(symbol);
+    Path bin = binaryPath(symbol);
+
+    if (Files.exists(csv) && (!Files.exists(bin) || Files.getLastModifiedTime(csv)
+        .compareTo(Files.getLastModifiedTime(bin)) > 0)) {
+      FileTime converted = Files.getLastModifiedTime(csv);
+      save(PriceSeries.fromCsv(symbol, csv));
+      if (format == Format.ARCHIVE) {
+        //unless a new download replaced it since the conversion
+        AtomicFiles.locked(csv, () -> {
+          if (Files.exists(csv) && Files.getLastModifiedTime(csv).equals(converted)) {
+            Files.delete(csv);
+          }
+          return null;
+        });
+      }
+    }
+    if (!Files.exists(bin)) {
+      throw new FileNotFoundException("No cached price data for symbol: " + symbol);
+    }
+    return format == Format.ARCHIVE ? ArchivedPriceSeries.map(bin) : MappedPriceSeries.map(bin);
+  }
+
+  /**
+   * Save a price series in to the binary price file of its symbol.
+   *
+   * @param series price series to save.
+   * @throws IOException on file handling errors.
+   */
+  public void save(IPriceSeries series) throws IOException {
+    if (format == Format.ARCHIVE) {
+      AtomicFiles.write(binaryPath(series.getSymbol()),
+          temp -> ArchivedPriceSeries.write(series, temp));
+    } else {
+      AtomicFiles.write(binaryPath(series.getSymbol()),
+          temp -> MappedPriceSeries.write(series, temp));
+    }
+  }
+
+  /**
+   * Get the path of the metadata file of a symbol.
+   *
+   * @param symbol symbol of the stock.
+   * @return path of the metadata file.
+   */
+  public Path metadataPath(String symbol) {
+    return directory.resolve(symbol + ".meta");
+  }
+
+  /**
+   * Read the freshness metadata of the cached history of a symbol.
+   *
+   * @param symbol symbol of the stock.
+   * @return metadata of the symbol, null if none was recorded.
+   * @throws IOException on file handling errors.
+   */
+  public PriceMetadata readMetadata(String symbol) throws IOException {
+    Path meta = metadataPath(symbol);
+    if (!Files.exists(meta)) {
+      return null;
+    }
+    return PriceMetadata.read(meta);
+  }
+
+  /**
+   * Record the freshness metadata of the cached history of a symbol.
+   *
+   * @param symbol   symbol of the stock.
+   * @param metadata metadata of the symbol.
+   * @throws IOException on file handling errors.
+   */
+  public void writeMetadata(String symbol, PriceMetadata metadata) throws IOException {
+    AtomicFiles.write(metadataPath(symbol), metadata::write);
+  }
+
+  /**
+   * Keep a rejected download of a symbol aside in the quarantine directory for inspection.
+   *
+   * @param symbol  symbol of the stock.
+   * @param payload path of the rejected download.
+   * @return path of the quarantined copy.
+   * @throws IOException on file handling errors.
+   */
+  public Path quarantine(String symbol, Path payload) throws IOException {
+    Path quarantine = Files.createDirectories(directory.resolve("quarantine"));
+    return Files.copy(payload,
+        quarantine.resolve(symbol + "-" + System.currentTimeMillis() + ".csv"));
+  }
+
+  /**
+   * Keep a rejected download of a symbol aside in the quarantine directory for inspection.
+   *
+   * @param symbol symbol of the stock.
+   * @param lines  lines of the rejected download.
+   * @return path of the quarantined copy.
+   * @throws IOException on file handling errors.
+   */
+  public Path quarantine(String symbol, List<String> lines) throws IOException {
+    Path quarantine = Files.createDirectories(directory.resolve("quarantine"));
+    return Files.write(quarantine.resolve(symbol + "-" + System.currentTimeMillis() + ".csv"),
+        lines, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Drop the binary price file of a symbol after its csv file has been downloaded again. The
+   * series loaded from the file must have been released first, as
+   * {@link PriceSeriesCache#invalidate} does, since Windows does not delete a mapped file.
+   *
+   * @param symbol symbol of the stock.
+   * @throws IOException on file handling errors.
+   */
+  public void invalidate(String symbol) throws IOException {
+    Path bin = binaryPath(symbol);
+    AtomicFiles.locked(bin, () -> Files.deleteIfExists(bin));
+  }
+}
@@ -0,0 +1,115 @@
+package stockbroker.model;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of the latest quotes of the stocks. A quote is served from the cache until it is older
+ * than the time to live, after which the next lookup fetches it again. The symbols whose quotes
+ * have expired can be listed together, so a whole portfolio can be refreshed at once.
+ */
+public class QuoteCache {
+
+  /**
+   * Latest quote of a stock.
+   */
+  public static class Quote {
+
+    private final double price;
+    private final String date;
+    private final Instant fetched;
+
+    Quote(double price, String date, Instant fetched) {
+      this.price = price;
+      this.date = date;
+      this.fetched = fetched;
+    }
+
+    public double getPrice() {
+      return price;
+    }
+
+    public String getDate() {
+      return date;
+    }
+
+    public Instant getFetched() {
+      return fetched;
+    }
+  }
+
+  private final Duration timeToLive;
+  private final Clock clock;
+  private final ConcurrentHashMap<String, Quote> quotes = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor of the quote cache.
+   *
+   * @param timeToLive time a quote is served from the cache after it was fetched.
+   * @param clock      clock to measure the age of the quotes with.
+   */
+  public QuoteCache(Duration timeToLive, Clock clock) {
+    this.timeToLive = timeToLive;
+    this.clock = clock;
+  }
+
+  private boolean isFresh(Quote quote) {
+    return quote != null && clock.instant().isBefore(quote.fetched.plus(timeToLive));
+  }
+
+  /**
+   * Get the latest quote of a stock if it has not expired.
+   *
+   * @param symbol symbol of the stock.
+   * @return quote of the stock, null if it is not cached or has expired.
+   */
+  public Quote get(String symbol) {
+    Quote quote = quotes.get(symbol);
+    return isFresh(quote) ? quote : null;
+  }
+
+  /**
+   * Cache the latest quote of a stock.
+   *
+   * @param symbol symbol of the stock.
+   * @param price  latest price of the stock.
+   * @param date   trading day of the price.
+   * @return the cached quote.
+   */
+  public Quote put(String symbol, double price, String date) {
+    Quote quote = new Quote(price, date, clock.instant());
+    quotes.put(symbol, quote);
+    return quote;
+  }
+
+  /**
+   * List the symbols whose quotes are not cached or have expired.
+   *
+   * @param symbols symbols of the stocks.
+   * @return distinct symbols to fetch again, in the given order.
+   */
+  public List<String> stale(Collection<String> symbols) {
+    List<String> stale = new ArrayList<>();
+    for (String symbol : new LinkedHashSet<>(symbols)) {
+      if (!isFresh(quotes.get(symbol))) {
+        stale.add(symbol);
+      }
+    }
+    return stale;
+  }
+
+  /**
+   * Drop the quote of a stock.
+   *
+   * @param symbol symbol of the stock.
+   */
+  public void invalidate(String symbol) {
+    quotes.remove(symbol);
+  }
+}
@@ -0,0 +1,83 @@
+package stockbroker.model;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Backoff of the symbols whose price data was rejected. After each consecutive rejection of a
+ * symbol, no request is made for it for twice as long as before, up to a maximum, so that a bad
+ * symbol does not keep using up the request quota of the provider.
+ */
+public class RetryBackoff {
+
+  private static class State {
+
+    private final int failures;
+    private final Instant retryAfter;
+
+    State(int failures, Instant retryAfter) {
+      this.failures = failures;
+      this.retryAfter = retryAfter;
+    }
+  }
+
+  private final Duration initialDelay;
+  private final Duration maxDelay;
+  private final Clock clock;
+  private final ConcurrentHashMap<String, State> states = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor of the backoff.
+   *
+   * @param initialDelay delay after the first rejection.
+   * @param maxDelay     maximum delay after any number of rejections.
+   * @param clock        clock to measure the delays with.
+   */
+  public RetryBackoff(Duration initialDelay, Duration maxDelay, Clock clock) {
+    this.initialDelay = initialDelay;
+    this.maxDelay = maxDelay;
+    this.clock = clock;
+  }
+
+  /**
+   * Check that a request can be made for a symbol.
+   *
+   * @param symbol symbol of the stock.
+   * @throws IOException if the symbol is backing off.
+   */
+  public void checkAllowed(String symbol) throws IOException {
+    State state = states.get(symbol);
+    if (state != null && clock.instant().isBefore(state.retryAfter)) {
+      throw new IOException(
+          "Price data for symbol: " + symbol + " was rejected, retry after " + state.retryAfter);
+    }
+  }
+
+  /**
+   * Record a rejection of the price data of a symbol.
+   *
+   * @param symbol symbol of the stock.
+   */
+  public void recordFailure(String symbol) {
+    states.compute(symbol, (key, state) -> {
+      int failures = state == null ? 1 : state.failures + 1;
+      Duration delay = initialDelay.multipliedBy(1L << Math.min(failures - 1, 20));
+      if (delay.compareTo(maxDelay) > 0) {
+        delay = maxDelay;
+      }
+      return new State(failures, clock.instant().plus(delay));
+    });
+  }
+
+  /**
+   * Record valid price data of a symbol, clearing its backoff.
+   *
+   * @param symbol symbol of the stock.
+   */
+  public void recordSuccess(String symbol) {
+    states.remove(symbol);
+  }
+}
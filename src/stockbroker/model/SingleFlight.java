@@ -0,0 +1,75 @@
+package stockbroker.model;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces concurrent work on the same key. The first caller for a key does the work, and the
+ * callers arriving while it is in progress wait for and share its result instead of repeating it.
+ * Once the work is done the key is free again, so later callers do the work afresh.
+ *
+ * @param <K> type of the key, such as a stock symbol.
+ * @param <V> type of the result of the work.
+ */
+public class SingleFlight<K, V> {
+
+  private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+  /**
+   * Do the work for a key, or wait for the work already in progress for the key.
+   *
+   * @param key  key the work is for.
+   * @param work the work to do if none is in progress.
+   * @return result of the work.
+   * @throws IOException if the work failed, for every caller waiting on it.
+   */
+  public V run(K key, FetchScheduler.Fetch<V> work) throws IOException {
+    CompletableFuture<V> mine = new CompletableFuture<>();
+    CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+    if (existing != null) {
+      return await(key, existing);
+    }
+
+    try {
+      V result = work.fetch();
+      mine.complete(result);
+      return result;
+    } catch (Throwable e) {
+      //an error too, or the callers waiting on the key would wait forever
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  /**
+   * Check if there is work in progress for a key.
+   *
+   * @param key key to check.
+   * @return true if work is in progress.
+   */
+  public boolean isInFlight(K key) {
+    return inFlight.containsKey(key);
+  }
+
+  private V await(K key, CompletableFuture<V> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for " + key);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw (RuntimeException) cause;
+    }
+  }
+}
@@ -1,19 +1,31 @@
 package stockbroker.model;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.io.StringReader;
 import java.io.FileWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Model for the stockbroker application. Implements all the required functionalities like create,
@@ -28,11 +40,148 @@ public class StockBroker implements IStockbroker {
 
   protected double stockQuantity;
   protected double stockPrice;
-  protected final String apiKey = "&apikey=JTQFLMKHAVWUSUC4";
   protected String portfolio;
 
   protected String stockBuyDate;
 
+  protected final Downloader downloader = new Downloader();
+  protected final PriceDataProvider priceDataProvider;
+  protected final FetchScheduler fetchScheduler;
+  protected FetchScheduler.Priority fetchPriority = FetchScheduler.Priority.INTERACTIVE;
+  protected final QuoteCache quoteCache;
+  protected final PriceStore priceStore = new PriceStore(Path.of("misc"),
+      PriceStore.Format.valueOf(System.getProperty("stockbroker.priceFormat", "binary")
+          .toUpperCase()));
+  protected final PriceSeriesCache priceCache;
+
+  //the cache files are shared by all the models, so are the downloads in progress for them
+  private static final SingleFlight<String, Void> cacheRefreshes = new SingleFlight<>();
+  private final RetryBackoff rejectedSymbols;
+
+  private final PriceDataValidator priceDataValidator = new PriceDataValidator();
+
+  //the stock listing is indexed once and shared by all the models
+  protected static final SymbolDirectory symbolDirectory = new SymbolDirectory(
+      Path.of("misc/stockList.csv"));
+
+  //the request limit belongs to the API key, so every model using a provider shares its scheduler
+  private static final Map<PriceDataProvider, FetchScheduler> fetchSchedulers =
+      new ConcurrentHashMap<>();
+  //a symbol rejected by a provider is held back from it for every model using the provider
+  private static final Map<PriceDataProvider, RetryBackoff> retryBackoffs =
+      new ConcurrentHashMap<>();
+  //the default providers by the local price data they read, "" for the alphavantage API
+  private static final Map<String, PriceDataProvider> defaultProviders = new ConcurrentHashMap<>();
+
+  private static final int MAX_CONCURRENT_FETCHES = 2;
+  private static final long DEFAULT_QUOTE_TTL_SECONDS = 60;
+  private static final int LISTING_SNAPSHOTS = 3;
+
+  /**
+   * Constructor of the stockbroker with the default price data provider. The data is read from the
+   * directory or zip archive in the system property stockbroker.priceData if it is set, otherwise
+   * it is fetched from the alphavantage API.
+   *
+   * @throws IllegalStateException if the local price data cannot be opened.
+   */
+  public StockBroker() {
+    this(defaultPriceDataProvider());
+  }
+
+  /**
+   * Constructor of the stockbroker. The requests to the provider are scheduled by the scheduler
+   * shared by all the models using the same provider.
+   *
+   * @param priceDataProvider source of the stock price data.
+   */
+  public StockBroker(PriceDataProvider priceDataProvider) {
+    this(priceDataProvider, defaultFetchScheduler(priceDataProvider));
+  }
+
+  /**
+   * Constructor of the stockbroker.
+   *
+   * @param priceDataProvider source of the stock price data.
+   * @param fetchScheduler    scheduler of the requests made to the price data provider.
+   */
+  public StockBroker(PriceDataProvider priceDataProvider, FetchScheduler fetchScheduler) {
+    this(priceDataProvider, fetchScheduler, new PriceSeriesCache(256, 64L * 1024 * 1024));
+  }
+
+  /**
+   * Constructor of the stockbroker with the default quote cache. The time to live of its quotes is
+   * read in seconds from the system property stockbroker.quoteTtl.
+   *
+   * @param priceDataProvider source of the stock price data.
+   * @param fetchScheduler    scheduler of the requests made to the price data provider.
+   * @param priceCache        cache holding the price series of the stocks looked up.
+   */
+  public StockBroker(PriceDataProvider priceDataProvider, FetchScheduler fetchScheduler,
+      PriceSeriesCache priceCache) {
+    this(priceDataProvider, fetchScheduler, priceCache, new QuoteCache(Duration.ofSeconds(
+        Long.getLong("stockbroker.quoteTtl", DEFAULT_QUOTE_TTL_SECONDS)), Clock.systemUTC()));
+  }
+
+  /**
+   * Constructor of the stockbroker with the backoff of rejected symbols shared by all the models
+   * using the same provider.
+   *
+   * @param priceDataProvider source of the stock price data.
+   * @param fetchScheduler    scheduler of the requests made to the price data provider.
+   * @param priceCache        cache holding the price series of the stocks looked up.
+   * @param quoteCache        cache of the latest quotes of the stocks.
+   */
+  public StockBroker(PriceDataProvider priceDataProvider, FetchScheduler fetchScheduler,
+      PriceSeriesCache priceCache, QuoteCache quoteCache) {
+    this(priceDataProvider, fetchScheduler, priceCache, quoteCache,
+        defaultRetryBackoff(priceDataProvider));
+  }
+
+  /**
+   * Constructor of the stockbroker. The historical prices are read through the price cache from
+   * the cached price files in misc, and the latest quotes are kept in the quote cache until they
+   * expire.
+   *
+   * @param priceDataProvider source of the stock price data.
+   * @param fetchScheduler    scheduler of the requests made to the price data provider.
+   * @param priceCache        cache holding the price series of the stocks looked up.
+   * @param quoteCache        cache of the latest quotes of the stocks.
+   * @param rejectedSymbols   backoff of the symbols whose price data was rejected.
+   */
+  public StockBroker(PriceDataProvider priceDataProvider, FetchScheduler fetchScheduler,
+      PriceSeriesCache priceCache, QuoteCache quoteCache, RetryBackoff rejectedSymbols) {
+    this.priceDataProvider = priceDataProvider;
+    this.fetchScheduler = fetchScheduler;
+    this.priceCache = priceCache;
+    this.quoteCache = quoteCache;
+    this.rejectedSymbols = rejectedSymbols;
+  }
+
+  protected static FetchScheduler defaultFetchScheduler(PriceDataProvider priceDataProvider) {
+    return fetchSchedulers.computeIfAbsent(priceDataProvider, provider -> new FetchScheduler(
+        provider.getRequestsPerMinute(), MAX_CONCURRENT_FETCHES));
+  }
+
+  protected static RetryBackoff defaultRetryBackoff(PriceDataProvider priceDataProvider) {
+    return retryBackoffs.computeIfAbsent(priceDataProvider, provider -> new RetryBackoff(
+        Duration.ofMinutes(1), Duration.ofHours(6), Clock.systemUTC()));
+  }
+
+  protected static PriceDataProvider defaultPriceDataProvider() {
+    String localData = System.getProperty("stockbroker.priceData");
+    if (localData == null) {
+      return defaultProviders.computeIfAbsent("",
+          key -> new AlphaVantagePriceDataProvider("JTQFLMKHAVWUSUC4"));
+    }
+    return defaultProviders.computeIfAbsent(localData, key -> {
+      try {
+        return new LocalPriceDataProvider(Path.of(key));
+      } catch (IOException e) {
+        throw new IllegalStateException("Local price data cannot be opened: " + key, e);
+      }
+    });
+  }
+
   protected void setStockSymbol(String stockSymbol) {
     this.stockSymbol = stockSymbol;
   }
@@ -91,116 +240,374 @@ public class StockBroker implements IStockbroker {
   }
 
 
-  @Override
-  public void fetchStockListing() throws IOException {
-    URL url = null;
-    File stockList = new File("misc/stockList.csv");
+  protected <T> T fetch(String symbol, FetchScheduler.Fetch<T> fetch) throws IOException {
+    return fetch(symbol, fetchPriority, fetch);
+  }
 
+  protected <T> T fetch(String symbol, FetchScheduler.Priority priority,
+      FetchScheduler.Fetch<T> fetch) throws IOException {
     try {
-      url = new URL(
-          "https://www.alphavantage" + ".co/query?function=LISTING_STATUS&datatype=csv" + apiKey);
-    } catch (MalformedURLException e) {
-      throw new RuntimeException("the alphavantage API has either changed or " + "no longer works");
+      return fetchScheduler.submit(symbol, priority, fetch).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while fetching data for " + symbol);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IOException(e.getCause());
     }
-    try {
-      BufferedInputStream in = new BufferedInputStream(url.openStream());
-      FileOutputStream fileOutputStream = new FileOutputStream(stockList);
-      byte[] dataBuffer = new byte[1024];
-      int bytesRead;
-      while ((bytesRead = in.read(dataBuffer, 0, 1024)) != -1) {
-        fileOutputStream.write(dataBuffer, 0, bytesRead);
+  }
+
+  //latest quote row of a symbol, null if the provider has none
+  private String[] readQuote(String symbol) throws IOException {
+    String line;
+    try (BufferedReader br = downloader.openReader(priceDataProvider.openQuote(symbol))) {
+      //skip header, the next line has the latest price available
+      br.readLine();
+      line = br.readLine();
+    }
+    if (line == null) {
+      return null;
+    }
+    //a rate limit note or an error message comes back in place of the quote row
+    String[] values = line.split(",");
+    if (values.length >= 7) {
+      try {
+        Double.parseDouble(values[4]);
+        LocalDate.parse(values[6]);
+        return values;
+      } catch (NumberFormatException | DateTimeParseException e) {
+        //reported below
       }
-    } catch (IOException e) {
-      throw new IOException("Error in saving the file!");
     }
+    throw new IOException("Invalid quote for " + symbol + ": " + line);
+  }
+
+  private QuoteCache.Quote cacheQuote(String symbol, String[] values) {
+    return values == null ? null
+        : quoteCache.put(symbol, Double.parseDouble(values[4]), values[6]);
   }
 
   @Override
-  public boolean validateSymbol(String symbol) throws IOException {
-    boolean validSymbol = false;
+  public void refreshQuotes(Collection<String> symbols) throws IOException {
+    //queue all the expired quotes at once, the scheduler spreads them over its fetch slots
+    Map<String, CompletableFuture<String[]>> pending = new LinkedHashMap<>();
+    for (String symbol : quoteCache.stale(symbols)) {
+      pending.put(symbol, fetchScheduler.submit(symbol, fetchPriority, () -> readQuote(symbol)));
+    }
+    for (Map.Entry<String, CompletableFuture<String[]>> entry : pending.entrySet()) {
+      try {
+        cacheQuote(entry.getKey(), entry.getValue().get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while fetching quotes");
+      } catch (ExecutionException e) {
+        //left uncached, the lookup of the symbol reports the error
+      }
+    }
+  }
+
+  protected boolean checkCacheExists(String symbol) {
+    return priceCache.contains(symbol) || priceStore.exists(symbol);
+  }
+
+  protected void updateCache(String symbol) throws IOException {
+    rejectedSymbols.checkAllowed(symbol);
+    cacheRefreshes.run(symbol, () -> {
+      refreshCache(symbol);
+      return null;
+    });
+  }
+
+  protected void createCache(String symbol, FetchScheduler.Priority priority) throws IOException {
+    rejectedSymbols.checkAllowed(symbol);
+    cacheRefreshes.run(symbol, () -> {
+      //another caller may have created it while this one was waiting
+      if (!checkCacheExists(symbol)) {
+        cacheStockDetails(symbol, priority);
+      }
+      return null;
+    });
+  }
+
+  private void refreshCache(String symbol) throws IOException {
+    Path csv = priceStore.csvPath(symbol);
+    if (!priceStore.exists(symbol)) {
+      this.cacheStockDetails(symbol, fetchPriority);
+      return;
+    }
+    IPriceSeries cached = getPriceSeries(symbol);
+    LocalDate lastCached = cached.getLastDate();
+    if (lastCached == null) {
+      this.cacheStockDetails(symbol, fetchPriority);
+      return;
+    }
 
+    //fetch only the recent window and keep the rows newer than the cache
+    List<String> recentRows;
     try {
-      BufferedReader br = new BufferedReader(new FileReader("misc/stockList.csv"));
-      String row;
-      while ((row = br.readLine()) != null) {
-        String[] values = row.split(",");
-        if (values[0].equals(symbol)) {
-          validSymbol = true;
-          this.setStockSymbol(values[0]);
-          this.setStockName(values[1]);
-          this.setStockExchange(values[2]);
-          break;
+      recentRows = fetch(symbol, () -> {
+        List<String> rows = new ArrayList<>();
+        try (BufferedReader br = downloader.openReader(
+            priceDataProvider.openDailySeries(symbol, false))) {
+          String row;
+          while ((row = br.readLine()) != null) {
+            rows.add(row.trim());
+          }
         }
+        return rows;
+      });
+    } catch (IOException e) {
+      throw new IOException("Error reading data from the price data provider. " + e);
+    }
+
+    try {
+      priceDataValidator.validate(symbol, recentRows);
+    } catch (PriceDataValidator.ThrottledException e) {
+      //a request limit note is no fault of the symbol, the scheduler paces the requests
+      throw e;
+    } catch (IOException e) {
+      priceStore.quarantine(symbol, recentRows);
+      rejectedSymbols.recordFailure(symbol);
+      throw e;
+    }
+    rejectedSymbols.recordSuccess(symbol);
+
+    List<String> newRows = new ArrayList<>();
+    LocalDate oldestRecent = null;
+    for (String row : recentRows.subList(1, recentRows.size())) {
+      if (row.isEmpty()) {
+        continue;
       }
-      br.close();
+      LocalDate rowDate;
+      try {
+        rowDate = LocalDate.parse(row.split(",")[0]);
+      } catch (DateTimeParseException e) {
+        continue;
+      }
+      oldestRecent = rowDate;
+      if (rowDate.isAfter(lastCached)) {
+        newRows.add(row);
+      }
+    }
+
+    if (oldestRecent == null || oldestRecent.isAfter(lastCached)) {
+      //the recent window does not overlap the cache, the gap has to be filled by a full download
+      this.cacheStockDetails(symbol, fetchPriority);
+      return;
+    }
+    if (newRows.isEmpty()) {
+      recordFetch(symbol);
+      return;
+    }
+
+    if (Files.exists(csv)) {
+      List<String> cachedRows = Files.readAllLines(csv, StandardCharsets.UTF_8);
+      List<String> merged = new ArrayList<>(cachedRows.size() + newRows.size());
+      merged.add(cachedRows.get(0));
+      merged.addAll(newRows);
+      merged.addAll(cachedRows.subList(1, cachedRows.size()));
+      AtomicFiles.write(csv, temp -> Files.write(temp, merged, StandardCharsets.UTF_8));
+
+      //the cached file changed, convert and load the series again on next lookup
+      priceCache.invalidate(symbol);
+      priceStore.invalidate(symbol);
+    } else {
+      //an archived history has no csv, append to the series itself
+      newRows.add(0, PriceDataValidator.HEADER);
+      IPriceSeries recent = PriceSeries.fromCsv(symbol,
+          new BufferedReader(new StringReader(String.join("\n", newRows))));
+      IPriceSeries appended = PriceSeries.append(cached, recent);
+      //the archive is still mapped by the cached series, release it before replacing the file
+      priceCache.invalidate(symbol);
+      cached.release();
+      priceStore.save(appended);
+    }
+    recordFetch(symbol);
+  }
+
+  private void cacheStockDetails(String symbol, FetchScheduler.Priority priority)
+      throws IOException {
+    try {
+      fetch(symbol, priority, () -> {
+        try (InputStream in = priceDataProvider.openDailySeries(symbol, true)) {
+          AtomicFiles.write(priceStore.csvPath(symbol), temp -> {
+            downloader.toFile(in, temp);
+            //an invalid download must not replace a good cache
+            try {
+              priceDataValidator.validate(symbol, temp);
+            } catch (PriceDataValidator.ThrottledException e) {
+              throw e;
+            } catch (IOException e) {
+              priceStore.quarantine(symbol, temp);
+              rejectedSymbols.recordFailure(symbol);
+              throw e;
+            }
+          });
+        }
+        return null;
+      });
     } catch (IOException e) {
-      throw new IOException(e);
+      throw new IOException("Error reading data from the price data provider. " + e);
     }
+    rejectedSymbols.recordSuccess(symbol);
 
-    return validSymbol;
+    //the cached file changed, convert and load the series again on next lookup
+    priceCache.invalidate(symbol);
+    priceStore.invalidate(symbol);
+    recordFetch(symbol);
   }
 
+  private void recordFetch(String symbol) throws IOException {
+    priceStore.writeMetadata(symbol, PriceMetadata.of(getPriceSeries(symbol), Instant.now()));
+  }
 
-  @Override
-  public double getStockValueOnADate(String date) throws IllegalArgumentException {
-    String apiFunction;
+  private PriceMetadata getPriceMetadata(String symbol) throws IOException {
+    PriceMetadata metadata = priceStore.readMetadata(symbol);
+    if (metadata == null) {
+      //cached before the metadata was recorded, the fetch time is unknown
+      metadata = PriceMetadata.of(getPriceSeries(symbol), Instant.EPOCH);
+    }
+    return metadata;
+  }
 
-    if (date.equals("latest")) {
-      apiFunction = "GLOBAL_QUOTE";
-    } else {
-      apiFunction = "TIME_SERIES_DAILY";
+  protected IPriceSeries getPriceSeries(String symbol) throws IOException {
+    return priceCache.get(symbol, priceStore::load);
+  }
+
+  /**
+   * Look up the closing price of a stock in the price cache. The price history is downloaded if it
+   * is not cached yet, and refreshed if the date may be newer than the last fetch.
+   *
+   * @param symbol symbol of the stock.
+   * @param date   date of the price.
+   * @return closing price of the stock on the date.
+   * @throws IllegalArgumentException if there is no price on the date.
+   * @throws IOException              on errors fetching or reading the price history.
+   */
+  protected double getCachedClosePrice(String symbol, LocalDate date)
+      throws IllegalArgumentException, IOException {
+    //if cache doesn't exist create a cache
+    if (!checkCacheExists(symbol)) {
+      createCache(symbol, fetchPriority);
     }
 
-    URL url = null;
     try {
-      url = new URL(
-          "https://www.alphavantage" + ".co/query?function=" + apiFunction + "&outputsize=full"
-              + "&symbol=" + getStockSymbol() + "&datatype=csv" + apiKey);
-    } catch (MalformedURLException e) {
-      throw new RuntimeException("the alphavantage API has either changed or " + "no longer works");
+      return getPriceSeries(symbol).getClosePrice(date);
+    } catch (IllegalArgumentException e) {
+      // a date before or within the cached history, or already over at the last fetch, has no price
+      if (!getPriceMetadata(symbol).needsFetch(date)) {
+        throw e;
+      }
+      // if price data not found in cache then update cache & search again
+      updateCache(symbol);
+
+      // throws IllegalArgumentException if data not found
+      return getPriceSeries(symbol).getClosePrice(date);
     }
+  }
 
-    InputStream in = null;
-    StringBuilder output = new StringBuilder();
+  @Override
+  public void fetchStockListing() throws IOException {
+    Path listings = Path.of("misc", "listings");
+    Path snapshot = listings.resolve("stockList-" + System.currentTimeMillis() + ".csv");
     try {
-      in = url.openStream();
-      int b;
+      Files.createDirectories(listings);
+      fetch("", () -> {
+        try (InputStream in = priceDataProvider.openListing()) {
+          AtomicFiles.write(snapshot, temp -> {
+            downloader.toFile(in, temp);
+            SymbolDirectory.validate(temp);
+          });
+        }
+        return null;
+      });
+      //swap the new snapshot in whole, a reader sees either the old or the new listing
+      AtomicFiles.write(Path.of("misc/stockList.csv"),
+          temp -> Files.copy(snapshot, temp, StandardCopyOption.REPLACE_EXISTING));
+    } catch (IOException e) {
+      throw new IOException("Error in saving the file!");
+    }
+    pruneListingSnapshots(listings);
+    symbolDirectory.refresh();
+  }
 
-      while ((b = in.read()) != -1) {
-        output.append((char) b);
-      }
+  //keep the few latest listing snapshots to go back to, the lock file of the directory is left
+  //alone as AtomicFiles needs
+  private void pruneListingSnapshots(Path listings) {
+    File[] snapshots = listings.toFile()
+        .listFiles((dir, name) -> name.startsWith("stockList-") && name.endsWith(".csv"));
+    if (snapshots == null || snapshots.length <= LISTING_SNAPSHOTS) {
+      return;
+    }
+    Arrays.sort(snapshots, Comparator.comparing(File::getName).reversed());
+    for (int i = LISTING_SNAPSHOTS; i < snapshots.length; i++) {
+      snapshots[i].delete();
+    }
+  }
 
+  @Override
+  public boolean validateSymbol(String symbol) throws IOException {
+    SymbolDirectory.Listing listing;
+    try {
+      listing = symbolDirectory.lookup(symbol);
     } catch (IOException e) {
-      throw new IllegalArgumentException("No price data found for " + stockSymbol);
+      throw new IOException(e);
+    }
+    if (listing == null) {
+      return false;
     }
+    this.setStockSymbol(listing.getSymbol());
+    this.setStockName(listing.getName());
+    this.setStockExchange(listing.getExchange());
+    return true;
+  }
 
-    String[] lines = output.toString().split("\n");
 
-    //System.out.println("data received:\n" + output.toString());
+  @Override
+  public List<String> searchSymbols(String prefix, int limit) throws IOException {
+    List<String> suggestions = new ArrayList<>();
+    for (SymbolDirectory.Listing listing : symbolDirectory.search(prefix, limit)) {
+      suggestions.add(listing.getSymbol() + " - " + listing.getName());
+    }
+    return suggestions;
+  }
 
-    //latest price available
+  @Override
+  public double getStockValueOnADate(String date) throws IllegalArgumentException {
+    String symbol = getStockSymbol();
     if (date.equals("latest")) {
-      String[] values = lines[1].split(",");
-      //set stock buy date & Price to reduce API calls
-      setStockBuyDate(values[6]);
-      setStockPrice(Double.parseDouble(values[4]));
-      return getStockPrice();
-    } else {
-      //get the closing price on a given date
-      for (String line : lines) {
-        String[] values = line.split(",");
-        if (values[0].equals(date)) {
-          //set stock buy date & Price to reduce API calls
-          setStockBuyDate(values[0]);
-          setStockPrice(Double.parseDouble(values[4]));
-          return getStockPrice();
+      QuoteCache.Quote quote = quoteCache.get(symbol);
+      if (quote == null) {
+        try {
+          quote = cacheQuote(symbol, fetch(symbol, () -> readQuote(symbol)));
+        } catch (IOException e) {
+          throw new IllegalArgumentException("No price data found for " + stockSymbol);
         }
       }
-
+      if (quote == null) {
+        throw new IllegalArgumentException("data on given date not found");
+      }
+      //set stock buy date & Price to reduce API calls
+      setStockBuyDate(quote.getDate());
+      setStockPrice(quote.getPrice());
+      return getStockPrice();
     }
 
-    throw new IllegalArgumentException("data on given date not found");
-
+    //the historical prices are read from the price cache, downloaded once per symbol
+    try {
+      setStockPrice(getCachedClosePrice(symbol, LocalDate.parse(date)));
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("data on given date not found");
+    } catch (IOException e) {
+      throw new IllegalArgumentException("No price data found for " + stockSymbol);
+    }
+    setStockBuyDate(date);
+    return getStockPrice();
   }
 
 
@@ -262,19 +669,24 @@ public class StockBroker implements IStockbroker {
     double totalValue = 0;
 
     try {
-      BufferedReader br = new BufferedReader(
-          new FileReader(files[Integer.parseInt(fileIndex) - 1]));
-      String row;
+      List<String> rows = Files.readAllLines(files[Integer.parseInt(fileIndex) - 1].toPath());
       //skip first line as it contains header
-      br.readLine();
-      while ((row = br.readLine()) != null) {
+      rows = rows.subList(Math.min(1, rows.size()), rows.size());
+      //look up each stock once, however many rows it has
+      Map<String, Double> quantities = new LinkedHashMap<>();
+      for (String row : rows) {
         String[] values = row.split(",");
-        setStockSymbol(values[0]);
-        setQuantity(Double.parseDouble(values[1]));
+        quantities.merge(values[0], Double.parseDouble(values[1]), Double::sum);
+      }
+      if (date.equals("latest")) {
+        refreshQuotes(quantities.keySet());
+      }
+      for (Map.Entry<String, Double> stock : quantities.entrySet()) {
+        setStockSymbol(stock.getKey());
+        setQuantity(stock.getValue());
         totalValue += getStockQuantity() * getStockValueOnADate(date);
 
       }
-      br.close();
     } catch (IOException e) {
       throw new IOException(e);
     }
@@ -0,0 +1,223 @@
+package stockbroker.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Directory of the listed stocks, read from the stock listing csv file in to a hash index from the
+ * symbol to its name and exchange, and a {@link SymbolSearch} by symbol and name prefix. The file
+ * is read once, and again only when its modification time or size has changed, so a symbol is
+ * looked up in memory without scanning the file.
+ *
+ * <p>A changed file is indexed again on a background thread, and the lookups keep using the
+ * previous index until the new one is ready.
+ */
+public class SymbolDirectory {
+
+  /**
+   * Listing of a stock in the directory.
+   */
+  public static class Listing {
+
+    private final String symbol;
+    private final String name;
+    private final String exchange;
+
+    Listing(String symbol, String name, String exchange) {
+      this.symbol = symbol;
+      this.name = name;
+      this.exchange = exchange;
+    }
+
+    public String getSymbol() {
+      return symbol;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getExchange() {
+      return exchange;
+    }
+  }
+
+  //index of a version of the listing file, replaced as a whole when the file changes
+  private static class Index {
+
+    private final FileTime modified;
+    private final long size;
+    private final Map<String, Listing> listings;
+    private final SymbolSearch search;
+
+    Index(FileTime modified, long size, Map<String, Listing> listings) {
+      this.modified = modified;
+      this.size = size;
+      this.listings = listings;
+      this.search = new SymbolSearch(listings.values());
+    }
+  }
+
+  private final Path file;
+  private volatile Index index;
+  private final AtomicBoolean reloading = new AtomicBoolean();
+  private final ExecutorService reloader = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "symbol-index");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Constructor of the symbol directory.
+   *
+   * @param file stock listing csv file with the symbol, name and exchange in the first columns.
+   */
+  public SymbolDirectory(Path file) {
+    this.file = file;
+  }
+
+  private static boolean isCurrent(Index index, BasicFileAttributes attributes) {
+    return index.modified.equals(attributes.lastModifiedTime())
+        && index.size == attributes.size();
+  }
+
+  private Index currentIndex() throws IOException {
+    Index current = index;
+    if (current == null) {
+      //nothing to serve yet, the first index is built on the request path
+      synchronized (this) {
+        if (index == null) {
+          index = load();
+        }
+        return index;
+      }
+    }
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(file, BasicFileAttributes.class);
+    } catch (IOException e) {
+      return current;
+    }
+    if (!isCurrent(current, attributes) && reloading.compareAndSet(false, true)) {
+      reloader.execute(() -> {
+        try {
+          index = load();
+        } catch (IOException e) {
+          //keep serving the previous index, the next lookup tries again
+        } finally {
+          reloading.set(false);
+        }
+      });
+    }
+    return current;
+  }
+
+  private Index load() throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+    return new Index(attributes.lastModifiedTime(), attributes.size(), read());
+  }
+
+  /**
+   * Index the listing file again in the background, for a file known to have changed.
+   *
+   * @return future completed once the new index is serving the lookups.
+   */
+  public CompletableFuture<Void> refresh() {
+    return CompletableFuture.runAsync(() -> {
+      try {
+        index = load();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, reloader);
+  }
+
+  /**
+   * Check that a downloaded stock listing can replace the current one.
+   *
+   * @param listing downloaded stock listing csv file.
+   * @return number of the stocks listed.
+   * @throws IOException if the file cannot be read, or it is not a stock listing.
+   */
+  public static int validate(Path listing) throws IOException {
+    int rows = 0;
+    try (BufferedReader br = Files.newBufferedReader(listing, StandardCharsets.UTF_8)) {
+      String header = br.readLine();
+      if (header == null || !header.startsWith("symbol,name,exchange")) {
+        throw new IOException("Invalid stock listing, unexpected header: " + header);
+      }
+      String row;
+      while ((row = br.readLine()) != null) {
+        if (row.split(",").length >= 3) {
+          rows++;
+        }
+      }
+    }
+    if (rows == 0) {
+      throw new IOException("Invalid stock listing, no stocks listed");
+    }
+    return rows;
+  }
+
+  private Map<String, Listing> read() throws IOException {
+    Map<String, Listing> listings = new HashMap<>(16384);
+    try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      //skip header
+      br.readLine();
+      String row;
+      while ((row = br.readLine()) != null) {
+        String[] values = row.split(",");
+        if (values.length >= 3) {
+          listings.putIfAbsent(values[0], new Listing(values[0], values[1], values[2]));
+        }
+      }
+    }
+    return listings;
+  }
+
+  /**
+   * Look up a stock by its symbol.
+   *
+   * @param symbol symbol of the stock.
+   * @return listing of the stock, null if the symbol is not listed.
+   * @throws IOException if the listing file cannot be read.
+   */
+  public Listing lookup(String symbol) throws IOException {
+    return currentIndex().listings.get(symbol);
+  }
+
+  /**
+   * Find the listed stocks whose symbol or company name starts with a prefix.
+   *
+   * @param prefix start of the symbol or the company name, in any case.
+   * @param limit  maximum number of stocks to return.
+   * @return listings of the matching stocks, the symbol matches first.
+   * @throws IOException if the listing file cannot be read.
+   */
+  public List<Listing> search(String prefix, int limit) throws IOException {
+    return currentIndex().search.search(prefix, limit);
+  }
+
+  /**
+   * Get the number of the listed stocks.
+   *
+   * @return number of the stocks in the directory.
+   * @throws IOException if the listing file cannot be read.
+   */
+  public int size() throws IOException {
+    return currentIndex().listings.size();
+  }
+}
@@ -0,0 +1,98 @@
+package stockbroker.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Prefix search over the symbols and the company names of the listed stocks. The listings are
+ * kept in two arrays, one sorted by symbol and one by name, so all the listings starting with a
+ * prefix are found with a binary search followed by a scan of only the matching entries.
+ */
+public class SymbolSearch {
+
+  private final SymbolDirectory.Listing[] bySymbol;
+  private final String[] symbolKeys;
+  private final SymbolDirectory.Listing[] byName;
+  private final String[] nameKeys;
+
+  /**
+   * Constructor of the symbol search.
+   *
+   * @param listings listings of the stocks to search.
+   */
+  public SymbolSearch(Collection<SymbolDirectory.Listing> listings) {
+    bySymbol = listings.toArray(new SymbolDirectory.Listing[0]);
+    Arrays.sort(bySymbol, Comparator.comparing(listing -> key(listing.getSymbol())));
+    symbolKeys = new String[bySymbol.length];
+    for (int i = 0; i < bySymbol.length; i++) {
+      symbolKeys[i] = key(bySymbol[i].getSymbol());
+    }
+    byName = listings.toArray(new SymbolDirectory.Listing[0]);
+    Arrays.sort(byName, Comparator.comparing(listing -> key(listing.getName())));
+    nameKeys = new String[byName.length];
+    for (int i = 0; i < byName.length; i++) {
+      nameKeys[i] = key(byName[i].getName());
+    }
+  }
+
+  private static String key(String value) {
+    return value.toLowerCase(Locale.ROOT);
+  }
+
+  //position of the first key not less than the prefix
+  private static int lowerBound(String[] keys, String prefix) {
+    int low = 0;
+    int high = keys.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (keys[mid].compareTo(prefix) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static void collect(String[] keys, SymbolDirectory.Listing[] listings, String prefix,
+      int limit, List<SymbolDirectory.Listing> matches) {
+    for (int i = lowerBound(keys, prefix); i < keys.length && matches.size() < limit
+        && keys[i].startsWith(prefix); i++) {
+      if (!matches.contains(listings[i])) {
+        matches.add(listings[i]);
+      }
+    }
+  }
+
+  /**
+   * Find the listings whose symbol or company name starts with a prefix, ignoring case. The
+   * symbol matches come first, each in alphabetical order.
+   *
+   * @param prefix start of the symbol or the company name.
+   * @param limit  maximum number of listings to return.
+   * @return matching listings, empty if the prefix is blank.
+   */
+  public List<SymbolDirectory.Listing> search(String prefix, int limit) {
+    List<SymbolDirectory.Listing> matches = new ArrayList<>();
+    String key = key(prefix.trim());
+    if (key.isEmpty() || limit <= 0) {
+      return matches;
+    }
+    collect(symbolKeys, bySymbol, key, limit, matches);
+    collect(nameKeys, byName, key, limit, matches);
+    return matches;
+  }
+
+  /**
+   * Get the number of the listings searched.
+   *
+   * @return number of the listings.
+   */
+  public int size() {
+    return bySymbol.length;
+  }
+}
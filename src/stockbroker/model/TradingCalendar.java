@@ -0,0 +1,84 @@
+package stockbroker.model;
+
+import java.time.LocalDate;
+
+/**
+ * Calendar of the trading days of the market, derived from the cached price series of a stock.
+ * Any date between the first and the last day of the series can be resolved to the nearest trading
+ * day with a binary search, without fetching any data.
+ */
+public class TradingCalendar {
+
+  private final IPriceSeries series;
+
+  /**
+   * Constructor of the trading calendar.
+   *
+   * @param series price series whose trading days make up the calendar.
+   */
+  public TradingCalendar(IPriceSeries series) {
+    this.series = series;
+  }
+
+  //position of the first trading day on or after the epoch day, size of the series if none
+  private int ceilingIndex(int epochDay) {
+    int low = 0;
+    int high = series.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (series.getEpochDay(mid) < epochDay) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Check if the date lies between the first and the last trading day of the calendar.
+   *
+   * @param date date to check.
+   * @return true if the calendar can resolve the date.
+   */
+  public boolean covers(LocalDate date) {
+    return series.size() > 0 && !date.isBefore(series.getFirstDate()) && !date.isAfter(
+        series.getLastDate());
+  }
+
+  /**
+   * Check if the date is a trading day.
+   *
+   * @param date date to check.
+   * @return true if the date is a trading day of the calendar.
+   */
+  public boolean isTradingDay(LocalDate date) {
+    return series.hasPriceOn(date);
+  }
+
+  /**
+   * Get the nearest trading day on or after the date.
+   *
+   * @param date date to resolve.
+   * @return the trading day, or null if the date is after the last day of the calendar.
+   */
+  public LocalDate onOrAfter(LocalDate date) {
+    int index = ceilingIndex((int) date.toEpochDay());
+    return index == series.size() ? null : LocalDate.ofEpochDay(series.getEpochDay(index));
+  }
+
+  /**
+   * Get the nearest trading day on or before the date.
+   *
+   * @param date date to resolve.
+   * @return the trading day, or null if the date is before the first day of the calendar.
+   */
+  public LocalDate onOrBefore(LocalDate date) {
+    int day = (int) date.toEpochDay();
+    int index = ceilingIndex(day);
+    if (index < series.size() && series.getEpochDay(index) == day) {
+      return date;
+    }
+    return index == 0 ? null : LocalDate.ofEpochDay(series.getEpochDay(index - 1));
+  }
+}
@@ -0,0 +1,408 @@
+package stockbroker.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of the transactions of a flexible portfolio. The file has a fixed
+ * size header followed by one fixed width record per transaction, in the order they were made:
+ *
+ * <pre>
+ * header : magic(int) version(int)
+ * record : symbol(16 bytes) epochDay(int) sell(byte) reserved(3 bytes) quantity(double)
+ *          commissionFee(double) price(double) reserved(4 bytes) crc(int)
+ * </pre>
+ *
+ * <p>Journals of version 1 have no price in their records, which are 8 bytes shorter. They can
+ * still be read, with the price of every transaction as NaN, but must be rewritten in the current
+ * version before anything is appended to them.
+ *
+ * <p>The crc of a record covers all the bytes before it. Transactions are appended in groups, each
+ * group with a single write and, if asked for, a single sync to the disk, while holding the lock
+ * the atomic rewrites of the journal take, so writers in other processes never write over each
+ * other. Readers take no lock and skip a record left partly written, which the next append drops.
+ *
+ * <p>A crash can only damage the end of the journal. A last record whose crc does not match is
+ * taken as torn and dropped like a partial one, and a new journal gets its header only after its
+ * first records are on the disk, so a journal without a header was never started. Only a bad
+ * record before the last one makes the journal invalid.
+ */
+public class TransactionJournal {
+
+  static final int MAGIC = 0x53424a4c;
+  static final int VERSION = 2;
+  static final int HEADER_SIZE = 4 + 4;
+  static final int SYMBOL_LENGTH = 16;
+  static final int RECORD_SIZE = SYMBOL_LENGTH + 4 + 1 + 3 + 8 + 8 + 8 + 4 + 4;
+  static final int V1_RECORD_SIZE = SYMBOL_LENGTH + 4 + 1 + 3 + 8 + 8 + 4 + 4;
+
+  /**
+   * A transaction recorded in the journal.
+   */
+  public static class Entry {
+
+    private final String symbol;
+    private final double quantity;
+    private final LocalDate date;
+    private final boolean sell;
+    private final double commissionFee;
+    private final double price;
+
+    /**
+     * Constructor of the journal entry.
+     *
+     * @param symbol        symbol of the stock, at most 16 ascii characters.
+     * @param quantity      quantity bought or sold.
+     * @param date          date of the transaction.
+     * @param sell          true for a sell, false for a buy.
+     * @param commissionFee commission fee of the transaction.
+     * @param price         price per share the stock was bought or sold at, NaN if not known.
+     */
+    public Entry(String symbol, double quantity, LocalDate date, boolean sell,
+        double commissionFee, double price) {
+      if (symbol.getBytes(StandardCharsets.US_ASCII).length > SYMBOL_LENGTH) {
+        throw new IllegalArgumentException("Symbol too long for the journal: " + symbol);
+      }
+      this.symbol = symbol;
+      this.quantity = quantity;
+      this.date = date;
+      this.sell = sell;
+      this.commissionFee = commissionFee;
+      this.price = price;
+    }
+
+    public String getSymbol() {
+      return symbol;
+    }
+
+    public double getQuantity() {
+      return quantity;
+    }
+
+    public LocalDate getDate() {
+      return date;
+    }
+
+    public boolean isSell() {
+      return sell;
+    }
+
+    public double getCommissionFee() {
+      return commissionFee;
+    }
+
+    public double getPrice() {
+      return price;
+    }
+
+    /**
+     * Get the same transaction at a given price.
+     *
+     * @param price price per share of the transaction.
+     * @return entry with the price.
+     */
+    public Entry withPrice(double price) {
+      return new Entry(symbol, quantity, date, sell, commissionFee, price);
+    }
+
+    /**
+     * Get the row of the transaction in the portfolio csv format
+     * Symbol,Quantity,Date,Transaction-Type,Commission-Fee,Price.
+     *
+     * @return csv row of the transaction.
+     */
+    public String toCsvRow() {
+      return symbol + "," + quantity + "," + date + "," + (sell ? "sell" : "buy") + ","
+          + commissionFee + "," + price;
+    }
+  }
+
+  private final Path file;
+
+  /**
+   * Constructor of the journal.
+   *
+   * @param file path to the journal file, created on the first append.
+   */
+  public TransactionJournal(Path file) {
+    this.file = file;
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * Check if the journal has been started. A file without a whole header was left by a crash
+   * during the first append, does not count and is written over by the next append.
+   *
+   * @return true if the journal exists with its header.
+   */
+  public boolean exists() {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return readHeader(channel) != 0;
+    } catch (NoSuchFileException e) {
+      return false;
+    } catch (IOException e) {
+      //an invalid journal, reading it reports the error
+      return true;
+    }
+  }
+
+  private static void encode(Entry entry, ByteBuffer buffer, CRC32 crc) {
+    int start = buffer.position();
+    byte[] name = Arrays.copyOf(entry.symbol.getBytes(StandardCharsets.US_ASCII), SYMBOL_LENGTH);
+    buffer.put(name);
+    buffer.putInt((int) entry.date.toEpochDay());
+    buffer.put((byte) (entry.sell ? 1 : 0));
+    buffer.put(new byte[3]);
+    buffer.putDouble(entry.quantity);
+    buffer.putDouble(entry.commissionFee);
+    buffer.putDouble(entry.price);
+    buffer.putInt(0);
+    crc.reset();
+    crc.update(buffer.array(), start, RECORD_SIZE - 4);
+    buffer.putInt((int) crc.getValue());
+  }
+
+  private static ByteBuffer encode(List<Entry> entries, boolean header) {
+    ByteBuffer buffer = ByteBuffer.allocate(
+        (header ? HEADER_SIZE : 0) + entries.size() * RECORD_SIZE).order(ByteOrder.BIG_ENDIAN);
+    if (header) {
+      buffer.putInt(MAGIC);
+      buffer.putInt(VERSION);
+    }
+    CRC32 crc = new CRC32();
+    for (Entry entry : entries) {
+      encode(entry, buffer, crc);
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private static int recordSize(int version) {
+    return version == 1 ? V1_RECORD_SIZE : RECORD_SIZE;
+  }
+
+  //check the header, returns the version of the journal or 0 if the header was never written
+  private int readHeader(FileChannel channel) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+    while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+      //keep reading until the header is full
+    }
+    int version = header.getInt(4);
+    if (header.hasRemaining() || (header.getInt(0) == 0 && version == 0)) {
+      return 0;
+    }
+    if (header.getInt(0) != MAGIC || version < 1 || version > VERSION) {
+      throw new IOException("Invalid transaction journal: " + file);
+    }
+    return version;
+  }
+
+  private static boolean isValid(ByteBuffer buffer, int offset, int recordSize, CRC32 crc) {
+    crc.reset();
+    crc.update(buffer.array(), offset, recordSize - 4);
+    return (int) crc.getValue() == buffer.getInt(offset + recordSize - 4);
+  }
+
+  //drop a record left partly written or torn, returns the number of whole records, only under
+  //the lock
+  private long recover(FileChannel channel, int recordSize) throws IOException {
+    long size = channel.size();
+    long records = (size - HEADER_SIZE) / recordSize;
+    if (records > 0) {
+      ByteBuffer last = ByteBuffer.allocate(recordSize).order(ByteOrder.BIG_ENDIAN);
+      long position = HEADER_SIZE + (records - 1) * recordSize;
+      while (last.hasRemaining() && channel.read(last, position + last.position()) >= 0) {
+        //keep reading until the record is full
+      }
+      if (!isValid(last, 0, recordSize, new CRC32())) {
+        records--;
+      }
+    }
+    if (HEADER_SIZE + records * recordSize != size) {
+      channel.truncate(HEADER_SIZE + records * recordSize);
+    }
+    return records;
+  }
+
+  /**
+   * Get the version of the journal file format.
+   *
+   * @return version of the journal, {@value #VERSION} for the current one, 0 if it was never
+   *     started.
+   * @throws IOException on file handling errors, or an invalid journal.
+   */
+  public int getVersion() throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return readHeader(channel);
+    }
+  }
+
+  /**
+   * Append a group of transactions with a single write. The journal is created if it does not
+   * exist. Appends from other threads and processes take turns with this one, and with
+   * {@link #rewrite}, through the lock of {@link AtomicFiles}.
+   *
+   * @param entries transactions to append, in order.
+   * @param sync    true to sync the journal to the disk before returning.
+   * @throws IOException on file handling errors, or a journal of an older version.
+   */
+  public void append(List<Entry> entries, boolean sync) throws IOException {
+    AtomicFiles.locked(file, () -> write(entries, sync, false));
+  }
+
+  /**
+   * Create the journal with the transactions of the portfolio so far, unless another writer has
+   * created it in the meantime.
+   *
+   * @param entries all the transactions of the portfolio, in order.
+   * @param sync    true to sync the journal to the disk before returning.
+   * @return true if the journal was created, false if it already existed.
+   * @throws IOException on file handling errors.
+   */
+  public boolean create(List<Entry> entries, boolean sync) throws IOException {
+    return AtomicFiles.locked(file, () -> write(entries, sync, true));
+  }
+
+  //append under the lock, returns false if only creating and the journal exists
+  private boolean write(List<Entry> entries, boolean sync, boolean create) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      int version = readHeader(channel);
+      if (version != 0 && create) {
+        return false;
+      }
+      if (version != 0 && version != VERSION) {
+        throw new IOException("Transaction journal must be rewritten before appending: " + file);
+      }
+      if (version == 0) {
+        //whatever a crash left of a first append is written over, the header goes last
+        channel.truncate(0);
+        write(channel, encode(entries, false), HEADER_SIZE);
+        channel.force(false);
+        write(channel, encode(List.of(), true), 0);
+      } else {
+        write(channel, encode(entries, false), HEADER_SIZE + recover(channel, RECORD_SIZE)
+            * RECORD_SIZE);
+      }
+      if (sync) {
+        channel.force(false);
+      }
+    }
+    return true;
+  }
+
+  private static void write(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+  /**
+   * Replace the journal with the given transactions, in the current version.
+   *
+   * @param entries all the transactions of the portfolio, in order.
+   * @throws IOException on file handling errors, in which case the journal is left unchanged.
+   */
+  public void rewrite(List<Entry> entries) throws IOException {
+    ByteBuffer buffer = encode(entries, true);
+    AtomicFiles.write(file, temp -> Files.write(temp, buffer.array()));
+  }
+
+  /**
+   * Read all the transactions of the journal. The journal is only read, a partly written or torn
+   * record at its end is skipped.
+   *
+   * @return transactions in the order they were appended, none if the journal was never started.
+   * @throws IOException on file handling errors, or a bad record before the last one.
+   */
+  public List<Entry> read() throws IOException {
+    ByteBuffer buffer;
+    long records;
+    int recordSize;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      int version = readHeader(channel);
+      if (version == 0) {
+        return new ArrayList<>();
+      }
+      recordSize = recordSize(version);
+      //a record still being written is left to its writer, only an append may drop it
+      records = (channel.size() - HEADER_SIZE) / recordSize;
+      buffer = ByteBuffer.allocate((int) (HEADER_SIZE + records * recordSize))
+          .order(ByteOrder.BIG_ENDIAN);
+      while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+        //keep reading until the buffer is full
+      }
+    }
+
+    List<Entry> entries = new ArrayList<>((int) records);
+    CRC32 crc = new CRC32();
+    byte[] name = new byte[SYMBOL_LENGTH];
+    for (int i = 0; i < records; i++) {
+      int offset = HEADER_SIZE + i * recordSize;
+      if (!isValid(buffer, offset, recordSize, crc)) {
+        if (i == records - 1) {
+          //torn by a crash, or still being written
+          break;
+        }
+        throw new IOException("Corrupt record " + i + " in transaction journal: " + file);
+      }
+      buffer.get(offset, name);
+      String symbol = new String(name, StandardCharsets.US_ASCII).trim();
+      entries.add(new Entry(symbol, buffer.getDouble(offset + SYMBOL_LENGTH + 8),
+          LocalDate.ofEpochDay(buffer.getInt(offset + SYMBOL_LENGTH)),
+          buffer.get(offset + SYMBOL_LENGTH + 4) == 1,
+          buffer.getDouble(offset + SYMBOL_LENGTH + 16),
+          recordSize == RECORD_SIZE ? buffer.getDouble(offset + SYMBOL_LENGTH + 24) : Double.NaN));
+    }
+    return entries;
+  }
+
+  /**
+   * Read the journal in to a portfolio ledger.
+   *
+   * @return the ledger of the portfolio, up to date with the journal file.
+   * @throws IOException on file handling errors, or a corrupt record.
+   */
+  public PortfolioLedger readLedger() throws IOException {
+    PortfolioLedger ledger = new PortfolioLedger();
+    for (Entry entry : read()) {
+      ledger.append(entry.symbol, entry.quantity, entry.date, entry.sell, entry.commissionFee,
+          entry.price);
+    }
+    ledger.markCurrent(file);
+    return ledger;
+  }
+
+  /**
+   * Export the transactions of the journal to a portfolio csv file.
+   *
+   * @param csv path of the csv file to write.
+   * @throws IOException on file handling errors, or a corrupt record.
+   */
+  public void exportCsv(Path csv) throws IOException {
+    List<Entry> entries = read();
+    AtomicFiles.write(csv, temp -> {
+      StringBuilder rows = new StringBuilder(PortfolioLedger.CSV_HEADER);
+      for (Entry entry : entries) {
+        rows.append("\n").append(entry.toCsvRow());
+      }
+      Files.writeString(temp, rows, StandardCharsets.UTF_8);
+    });
+  }
+}
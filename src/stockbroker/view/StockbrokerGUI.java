@@ -15,6 +15,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import javax.swing.ButtonGroup;
 import javax.swing.DefaultListModel;
 import javax.swing.JButton;
@@ -22,13 +23,19 @@ import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JList;
+import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JPopupMenu;
 import javax.swing.JRadioButton;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.JTextField;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import stockbroker.controller.IStockbrokerGUIController;
 
@@ -89,6 +96,10 @@ public class StockbrokerGUI extends JFrame implements IStockbrokerGUI {
   JLabel message3 = new JLabel("Click on 'Add new stock' button to add stocks");
   JLabel message4 = new JLabel("");
   private boolean isDCA = true;
+  private IStockbrokerGUIController features;
+  private JPopupMenu symbolSuggestions = new JPopupMenu();
+  private Timer symbolSearchTimer;
+  private static final int SYMBOL_SEARCH_DELAY_MS = 200;
 
   @Override
   public String getPortfolioName() {
@@ -273,6 +284,7 @@ public class StockbrokerGUI extends JFrame implements IStockbrokerGUI {
     portfolioList.addListSelectionListener(evt -> {
       if (!evt.getValueIsAdjusting()) {
         portFolioNameInput.setText(portfolioList.getSelectedValue().toString());
+        features.portfolioSelectedHandler(portFolioNameInput.getText());
         handleActions(action);
       }
     });
@@ -334,6 +346,7 @@ public class StockbrokerGUI extends JFrame implements IStockbrokerGUI {
     transactionPanel.add(transactionTypeSell);
     JLabel stockLabel = new JLabel("Enter Stock name");
     stockInput = new JTextField(10);
+    addSymbolSuggestions(stockInput);
     transactionPanel.add(stockLabel);
     transactionPanel.add(stockInput);
     JLabel quantityLabel = new JLabel("Enter Stock quantity");
@@ -352,6 +365,84 @@ public class StockbrokerGUI extends JFrame implements IStockbrokerGUI {
     transactionPanel.add(mainMenuButton);
   }
 
+  /**
+   * Suggest the matching stocks below a symbol field as the user types. The search starts once
+   * typing pauses for a moment, and runs off the event dispatch thread.
+   *
+   * @param field stock symbol text field.
+   */
+  private void addSymbolSuggestions(JTextField field) {
+    symbolSuggestions.setFocusable(false);
+    if (symbolSearchTimer != null) {
+      symbolSearchTimer.stop();
+    }
+    symbolSearchTimer = new Timer(SYMBOL_SEARCH_DELAY_MS, evt -> searchSymbols(field));
+    symbolSearchTimer.setRepeats(false);
+    field.getDocument().addDocumentListener(new DocumentListener() {
+      @Override
+      public void insertUpdate(DocumentEvent e) {
+        symbolSearchTimer.restart();
+      }
+
+      @Override
+      public void removeUpdate(DocumentEvent e) {
+        symbolSearchTimer.restart();
+      }
+
+      @Override
+      public void changedUpdate(DocumentEvent e) {
+        //attribute changes do not change the text
+      }
+    });
+  }
+
+  private void searchSymbols(JTextField field) {
+    String prefix = field.getText();
+    if (prefix.isBlank() || !field.isShowing()) {
+      symbolSuggestions.setVisible(false);
+      return;
+    }
+    new SwingWorker<List<String>, Void>() {
+      @Override
+      protected List<String> doInBackground() {
+        return features.searchSymbols(prefix);
+      }
+
+      @Override
+      protected void done() {
+        //a newer search replaces the result of one typed over
+        if (!prefix.equals(field.getText())) {
+          return;
+        }
+        try {
+          showSymbolSuggestions(field, get());
+        } catch (InterruptedException | ExecutionException e) {
+          symbolSuggestions.setVisible(false);
+        }
+      }
+    }.execute();
+  }
+
+  private void showSymbolSuggestions(JTextField field, List<String> suggestions) {
+    symbolSuggestions.setVisible(false);
+    symbolSuggestions.removeAll();
+    //an exact symbol needs no suggestion
+    if (suggestions.isEmpty() || (suggestions.size() == 1 && suggestions.get(0)
+        .startsWith(field.getText() + " - "))) {
+      return;
+    }
+    for (String suggestion : suggestions) {
+      JMenuItem item = new JMenuItem(suggestion);
+      item.addActionListener(evt -> {
+        field.setText(suggestion.substring(0, suggestion.indexOf(" - ")));
+        symbolSearchTimer.stop();
+        symbolSuggestions.setVisible(false);
+      });
+      symbolSuggestions.add(item);
+    }
+    symbolSuggestions.show(field, 0, field.getHeight());
+  }
+
   private void transactionFlow() {
     refreshGUI(listContainer);
     transactionPanel = new JPanel();
@@ -555,6 +646,7 @@ public class StockbrokerGUI extends JFrame implements IStockbrokerGUI {
 
   @Override
   public void listenerStore(IStockbrokerGUIController features) {
+    this.features = features;
     mainMenuButton.addActionListener(evt -> showMainMenu(true));
     createPortfolioButton.addActionListener(evt -> createPortfolioFlow());
     viewPortfolioButton.addActionListener(evt -> features.selectPortfolioHandler("viewHandler"));
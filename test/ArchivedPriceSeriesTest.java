@@ -0,0 +1,110 @@
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import stockbroker.model.ArchivedPriceSeries;
+import stockbroker.model.IPriceSeries;
+import stockbroker.model.PriceSeries;
+import stockbroker.model.PriceStore;
+
+/**
+ * A class to test the compressed archive format of the cached price histories.
+ */
+public class ArchivedPriceSeriesTest {
+
+  private Path dir;
+  private PriceSeries series;
+
+  @Before
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("misc");
+    int rows = 1000;
+    int[] days = new int[rows];
+    double[] closes = new double[rows];
+    int day = (int) LocalDate.parse("2018-01-02").toEpochDay();
+    for (int i = 0; i < rows; i++) {
+      //skip a weekend every five rows
+      day += i % 5 == 0 ? 3 : 1;
+      days[i] = day;
+      closes[i] = 100 + (i % 37) * 1.25 - (i % 11) * 0.3333;
+    }
+    series = new PriceSeries("GOOG", days, closes);
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    Path file = dir.resolve("GOOG.sbz");
+    ArchivedPriceSeries.write(series, file);
+    IPriceSeries archived = ArchivedPriceSeries.map(file);
+    Assert.assertEquals("GOOG", archived.getSymbol());
+    Assert.assertEquals(series.size(), archived.size());
+    Assert.assertEquals(series.getFirstDate(), archived.getFirstDate());
+    Assert.assertEquals(series.getLastDate(), archived.getLastDate());
+    for (int i = 0; i < series.size(); i++) {
+      Assert.assertEquals(series.getEpochDay(i), archived.getEpochDay(i));
+      Assert.assertEquals(series.getClosePriceAt(i), archived.getClosePriceAt(i), 0.0001);
+    }
+  }
+
+  @Test
+  public void testLookupAcrossBlocks() throws IOException {
+    Path file = dir.resolve("GOOG.sbz");
+    ArchivedPriceSeries.write(series, file);
+    IPriceSeries archived = ArchivedPriceSeries.map(file);
+    int[] indexes = {0, ArchivedPriceSeries.BLOCK_SIZE - 1, ArchivedPriceSeries.BLOCK_SIZE, 999, 3};
+    for (int i : indexes) {
+      LocalDate date = LocalDate.ofEpochDay(series.getEpochDay(i));
+      Assert.assertEquals(true, archived.hasPriceOn(date));
+      Assert.assertEquals(series.getClosePriceAt(i), archived.getClosePrice(date), 0.0001);
+    }
+    Assert.assertEquals(false, archived.hasPriceOn(series.getFirstDate().minusDays(1)));
+    Assert.assertEquals(false, archived.hasPriceOn(series.getLastDate().plusDays(1)));
+  }
+
+  @Test
+  public void testArchiveIsSmallerThanBinary() throws IOException {
+    Path archive = dir.resolve("GOOG.sbz");
+    ArchivedPriceSeries.write(series, archive);
+    Assert.assertTrue(Files.size(archive) < 12L * series.size());
+  }
+
+  @Test
+  public void testArchiveStoreReplacesCsv() throws IOException {
+    Files.writeString(dir.resolve("GOOG.csv"), "timestamp,open,high,low,close,volume\n"
+        + "2022-11-15,98.67,100.42,97.02,98.72,31831028\n"
+        + "2022-11-14,95.5,97.18,95.11,95.7,24170096\n");
+    PriceStore store = new PriceStore(dir, PriceStore.Format.ARCHIVE);
+    IPriceSeries loaded = store.load("GOOG");
+    Assert.assertEquals(95.7, loaded.getClosePrice(LocalDate.parse("2022-11-14")), 0.0001);
+    Assert.assertEquals(false, Files.exists(store.csvPath("GOOG")));
+    Assert.assertEquals(true, store.exists("GOOG"));
+    Assert.assertEquals(98.72, store.load("GOOG").getClosePrice(LocalDate.parse("2022-11-15")),
+        0.0001);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingDate() throws IOException {
+    Path file = dir.resolve("GOOG.sbz");
+    ArchivedPriceSeries.write(series, file);
+    ArchivedPriceSeries.map(file).getClosePrice(series.getFirstDate().minusDays(1));
+  }
+
+  @Test
+  public void testReleasedArchiveStillReads() throws IOException {
+    Path file = dir.resolve("GOOG.sbz");
+    ArchivedPriceSeries.write(series, file);
+    IPriceSeries archived = ArchivedPriceSeries.map(file);
+    archived.release();
+    Files.delete(file);
+    for (int i = 0; i < series.size(); i += 97) {
+      Assert.assertEquals(series.getClosePriceAt(i), archived.getClosePriceAt(i), 0.0001);
+    }
+    Assert.assertEquals(series.getLastDate(), archived.getLastDate());
+  }
+
+}
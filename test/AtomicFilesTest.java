@@ -0,0 +1,82 @@
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+
+import stockbroker.model.AtomicFiles;
+
+/**
+ * A class to test the atomic replacement of files.
+ */
+public class AtomicFilesTest {
+
+  private Path dir;
+  private Path target;
+
+  @Before
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("misc");
+    target = dir.resolve("GOOG.csv");
+    Files.writeString(target, "old");
+  }
+
+  @Test
+  public void testWriteReplacesFile() throws IOException {
+    AtomicFiles.write(target, temp -> Files.writeString(temp, "new"));
+    Assert.assertEquals("new", Files.readString(target));
+  }
+
+  @Test
+  public void testFailedWriteKeepsOldFile() throws IOException {
+    try {
+      AtomicFiles.write(target, temp -> {
+        Files.writeString(temp, "partial");
+        throw new IOException("connection reset");
+      });
+      Assert.fail();
+    } catch (IOException e) {
+      Assert.assertEquals("old", Files.readString(target));
+    }
+    //no temporary file is left behind
+    try (var files = Files.list(dir)) {
+      Assert.assertEquals(0, files.filter(f -> f.toString().endsWith(".tmp")).count());
+    }
+  }
+
+  @Test
+  public void testWriteKeepsPermissions() throws IOException {
+    if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+      return;
+    }
+    Files.setPosixFilePermissions(target, PosixFilePermissions.fromString("rw-rw-r--"));
+    AtomicFiles.write(target, temp -> Files.writeString(temp, "new"));
+    Assert.assertEquals("rw-rw-r--",
+        PosixFilePermissions.toString(Files.getPosixFilePermissions(target)));
+
+    //a new file gets the same permissions as one made by Files.writeString
+    Path created = dir.resolve("INFY.csv");
+    Path plain = dir.resolve("plain.csv");
+    AtomicFiles.write(created, temp -> Files.writeString(temp, "new"));
+    Files.writeString(plain, "new");
+    Assert.assertEquals(Files.getPosixFilePermissions(plain),
+        Files.getPosixFilePermissions(created));
+  }
+
+  @Test
+  public void testOneLockFilePerDirectory() throws IOException {
+    AtomicFiles.write(target, temp -> Files.writeString(temp, "new"));
+    AtomicFiles.write(dir.resolve("INFY.csv"), temp -> Files.writeString(temp, "new"));
+    AtomicFiles.locked(dir.resolve("TTM.csv"), () -> null);
+    try (var files = Files.list(dir)) {
+      Assert.assertEquals(List.of(AtomicFiles.LOCK_FILE, "GOOG.csv", "INFY.csv"),
+          files.map(f -> f.getFileName().toString()).sorted().toList());
+    }
+  }
+
+}
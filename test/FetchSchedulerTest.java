@@ -0,0 +1,96 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import stockbroker.model.FetchScheduler;
+import stockbroker.model.FetchScheduler.Priority;
+import stockbroker.model.LocalPriceDataProvider;
+import stockbroker.model.PriceDataProvider;
+import stockbroker.model.StockBroker;
+
+/**
+ * A class to test the rate limited scheduler of price data requests.
+ */
+public class FetchSchedulerTest {
+
+  //gives access to the scheduler of a model
+  private static class ScheduledBroker extends StockBroker {
+
+    ScheduledBroker(PriceDataProvider priceDataProvider) {
+      super(priceDataProvider);
+    }
+
+    FetchScheduler getFetchScheduler() {
+      return fetchScheduler;
+    }
+  }
+
+  @Test
+  public void testSharedByTheModelsOfAProvider() throws IOException {
+    Path prices = Files.createTempDirectory("prices");
+    PriceDataProvider provider = new LocalPriceDataProvider(prices);
+    Assert.assertSame(new ScheduledBroker(provider).getFetchScheduler(),
+        new ScheduledBroker(provider).getFetchScheduler());
+    Assert.assertNotSame(new ScheduledBroker(provider).getFetchScheduler(),
+        new ScheduledBroker(new LocalPriceDataProvider(prices)).getFetchScheduler());
+  }
+
+  @Test
+  public void testInteractiveStartsBeforeBackground() throws Exception {
+    FetchScheduler scheduler = new FetchScheduler(1000, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+    CompletableFuture<String> blocker = scheduler.submit("GOOG", Priority.BACKGROUND, () -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return "GOOG";
+    });
+    //wait until the blocker holds the only slot
+    Thread.sleep(100);
+    CompletableFuture<Boolean> background = scheduler.submit("INFY", Priority.BACKGROUND,
+        () -> order.add("INFY"));
+    CompletableFuture<Boolean> interactive = scheduler.submit("TTM", Priority.INTERACTIVE,
+        () -> order.add("TTM"));
+    release.countDown();
+
+    Assert.assertEquals("GOOG", blocker.get(5, TimeUnit.SECONDS));
+    background.get(5, TimeUnit.SECONDS);
+    interactive.get(5, TimeUnit.SECONDS);
+    Assert.assertEquals(List.of("TTM", "INFY"), order);
+    scheduler.shutdown();
+  }
+
+  @Test
+  public void testRateLimit() throws Exception {
+    FetchScheduler scheduler = new FetchScheduler(1, 2);
+    CompletableFuture<Integer> first = scheduler.submit("GOOG", Priority.INTERACTIVE, () -> 1);
+    CompletableFuture<Integer> second = scheduler.submit("INFY", Priority.INTERACTIVE, () -> 2);
+    Assert.assertEquals(1, (int) first.get(5, TimeUnit.SECONDS));
+    Thread.sleep(200);
+    Assert.assertEquals(false, second.isDone());
+    scheduler.shutdown();
+  }
+
+  @Test(expected = ExecutionException.class)
+  public void testFailedFetch() throws Exception {
+    FetchScheduler scheduler = new FetchScheduler(1000, 1);
+    scheduler.submit("GOOG", Priority.INTERACTIVE, () -> {
+      throw new IOException("rate limited");
+    }).get(5, TimeUnit.SECONDS);
+  }
+
+}
@@ -7,12 +7,16 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.LinkedHashMap;
+import java.util.List;
 
 import stockbroker.model.FlexStockbroker;
 import stockbroker.model.IFlexStockbroker;
+import stockbroker.model.PortfolioLedger;
+import stockbroker.model.TransactionJournal;
 
 /**
  * A class to test the functionalities of Flexible Stock Broker.
@@ -326,6 +330,27 @@ public class FlexStockBrokerTest {
   }
 
 
+  @Test
+  public void testLoadPortfolioOverStaleJournal() throws IOException {
+    //journal of a removed portfolio with the same name as the one loaded
+    Path journal = Path.of("flexPortfolios", "journal", "testLoadOverStaleJournal.jnl");
+    Files.createDirectories(journal.getParent());
+    Files.deleteIfExists(journal);
+    Files.deleteIfExists(Path.of("flexPortfolios", "testLoadOverStaleJournal.csv"));
+    new TransactionJournal(journal).append(List.of(new TransactionJournal.Entry("MSFT", 50.0,
+        LocalDate.parse("2022-11-01"), false, 1.0, 220.0)), false);
+
+    Path file = Files.createTempDirectory("load").resolve("testLoadOverStaleJournal.csv");
+    Files.writeString(file, PortfolioLedger.CSV_HEADER + "\nGOOG,10.0,2022-11-01,buy,2.0,90.5");
+    sb.loadPortfolio(file.toString());
+
+    String result = sb.viewPortfolio(sb.getFileIndex("testLoadOverStaleJournal") + "",
+        "2022-11-30");
+    Assert.assertEquals(true, result.contains("GOOG | 10.0"));
+    Assert.assertEquals(false, result.contains("MSFT"));
+    Assert.assertEquals(false, Files.exists(journal));
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testNegativeCommissionWhenBuyOrSell() throws IOException {
     sb.createPortfolio("testNegativeCommisionWhenBuyOrSell");
@@ -0,0 +1,80 @@
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import stockbroker.model.LocalPriceDataProvider;
+import stockbroker.model.PriceDataProvider;
+
+/**
+ * A class to test the price data provider reading local files.
+ */
+public class LocalPriceDataProviderTest {
+
+  private static final String GOOG = "timestamp,open,high,low,close,volume\n"
+      + "2022-11-15,98.67,100.42,97.02,98.72,31831028\n"
+      + "2022-11-14,95.5,97.18,95.11,95.7,24170096\n";
+
+  private Path dir;
+
+  @Before
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("priceData");
+    Files.writeString(dir.resolve("GOOG.csv"), GOOG);
+  }
+
+  private String readAll(InputStream in) throws IOException {
+    try (BufferedReader br = new BufferedReader(
+        new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      StringBuilder sb = new StringBuilder();
+      String line;
+      while ((line = br.readLine()) != null) {
+        sb.append(line).append("\n");
+      }
+      return sb.toString();
+    }
+  }
+
+  @Test
+  public void testOpenDailySeries() throws IOException {
+    PriceDataProvider provider = new LocalPriceDataProvider(dir);
+    Assert.assertEquals(GOOG, readAll(provider.openDailySeries("GOOG", true)));
+  }
+
+  @Test
+  public void testOpenQuoteIsLatestDay() throws IOException {
+    PriceDataProvider provider = new LocalPriceDataProvider(dir);
+    String[] values = readAll(provider.openQuote("GOOG")).split("\n")[1].split(",");
+    Assert.assertEquals("98.72", values[4]);
+    Assert.assertEquals("2022-11-15", values[6]);
+  }
+
+  @Test
+  public void testOpenDailySeriesFromZipArchive() throws IOException {
+    Path zip = dir.resolve("prices.zip");
+    try (OutputStream out = Files.newOutputStream(zip);
+        ZipOutputStream zos = new ZipOutputStream(out)) {
+      zos.putNextEntry(new ZipEntry("GOOG.csv"));
+      zos.write(GOOG.getBytes(StandardCharsets.UTF_8));
+      zos.closeEntry();
+    }
+    PriceDataProvider provider = new LocalPriceDataProvider(zip);
+    Assert.assertEquals(GOOG, readAll(provider.openDailySeries("GOOG", false)));
+  }
+
+  @Test(expected = IOException.class)
+  public void testMissingSymbol() throws IOException {
+    new LocalPriceDataProvider(dir).openDailySeries("INFY", true);
+  }
+
+}
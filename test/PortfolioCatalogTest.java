@@ -0,0 +1,99 @@
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import stockbroker.model.PortfolioCatalog;
+
+/**
+ * A class to test the catalog of the portfolio files.
+ */
+public class PortfolioCatalogTest {
+
+  private Path dir;
+  private PortfolioCatalog catalog;
+
+  @Before
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("flexPortfolios");
+    Files.writeString(dir.resolve("growth.csv"), "Symbol,Quantity,Date,Transaction-Type");
+    Files.createDirectory(dir.resolve("journal"));
+    Files.writeString(dir.resolve("notes.txt"), "not a portfolio");
+    catalog = new PortfolioCatalog(dir);
+  }
+
+  @After
+  public void teardown() throws IOException {
+    catalog.close();
+  }
+
+  @Test
+  public void testListsOnlyPortfolios() {
+    Assert.assertEquals(List.of("growth.csv"), catalog.list());
+    Assert.assertEquals(1, catalog.getFileIndex("growth.csv"));
+    Assert.assertEquals(0, catalog.getFileIndex("notes.txt"));
+  }
+
+  @Test
+  public void testAddedPortfolioGoesLast() throws IOException {
+    catalog.list();
+    Files.writeString(dir.resolve("aaa.csv"), "Symbol,Quantity,Date,Transaction-Type");
+    catalog.register("aaa.csv");
+    Assert.assertEquals(List.of("growth.csv", "aaa.csv"), catalog.list());
+    Assert.assertEquals("aaa.csv", catalog.getFilename(2));
+    Assert.assertEquals(1, catalog.get("growth.csv").getId());
+    Assert.assertEquals(2, catalog.get("aaa.csv").getId());
+  }
+
+  @Test
+  public void testIdsSurviveRestart() throws IOException {
+    catalog.list();
+    Files.writeString(dir.resolve("aaa.csv"), "Symbol,Quantity,Date,Transaction-Type");
+    catalog.register("aaa.csv");
+    try (PortfolioCatalog reopened = new PortfolioCatalog(dir)) {
+      Assert.assertEquals(List.of("growth.csv", "aaa.csv"), reopened.list());
+    }
+  }
+
+  @Test
+  public void testSharedPerDirectory() throws IOException {
+    PortfolioCatalog shared = PortfolioCatalog.forDirectory(dir);
+    Assert.assertSame(shared, PortfolioCatalog.forDirectory(dir.resolve("journal/..")));
+    shared.close();
+    PortfolioCatalog reopened = PortfolioCatalog.forDirectory(dir);
+    Assert.assertNotSame(shared, reopened);
+    reopened.close();
+  }
+
+  @Test
+  public void testClosedCatalogScans() throws IOException {
+    catalog.list();
+    catalog.close();
+    Files.writeString(dir.resolve("income.csv"), "Symbol,Quantity,Date,Transaction-Type");
+    Assert.assertEquals(List.of("growth.csv", "income.csv"), catalog.list());
+  }
+
+  @Test
+  public void testWatchedChanges() throws IOException, InterruptedException {
+    catalog.list();
+    Files.writeString(dir.resolve("income.csv"), "Symbol,Quantity,Date,Transaction-Type");
+    Files.delete(dir.resolve("growth.csv"));
+    //the watch events arrive asynchronously
+    for (int i = 0; i < 200 && !catalog.list().equals(List.of("income.csv")); i++) {
+      Thread.sleep(50);
+    }
+    Assert.assertEquals(List.of("income.csv"), catalog.list());
+    Assert.assertNull(catalog.get("growth.csv"));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testMissingFileIndex() {
+    catalog.getFilename(5);
+  }
+
+}
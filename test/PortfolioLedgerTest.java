@@ -0,0 +1,206 @@
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import stockbroker.model.PortfolioLedger;
+
+/**
+ * A class to test the in-memory ledger of a flexible portfolio.
+ */
+public class PortfolioLedgerTest {
+
+  private Path file;
+  private PortfolioLedger ledger;
+
+  @Before
+  public void setup() throws IOException {
+    file = Files.createTempFile("flexPortfolio", ".csv");
+    Files.writeString(file, PortfolioLedger.CSV_HEADER + "\n"
+        + "GOOG,10.0,2022-11-01,buy,2.0,90.5\n"
+        + "MSFT,5.0,2022-11-10,buy,1.0,240.0\n"
+        + "GOOG,4.0,2022-11-08,sell,2.0,88.0\n"
+        + "GOOG,2.0,2022-10-03,buy,0.5,100.0");
+    ledger = PortfolioLedger.read(file);
+  }
+
+  @Test
+  public void testSortedByDate() {
+    Assert.assertEquals(4, ledger.size());
+    Assert.assertEquals(LocalDate.parse("2022-10-03"), ledger.getDate(0));
+    Assert.assertEquals("GOOG", ledger.getSymbol(2));
+    Assert.assertEquals(true, ledger.isSell(2));
+    Assert.assertEquals("MSFT", ledger.getSymbol(3));
+    Assert.assertEquals(1.0, ledger.getCommissionFee(3), 0.00);
+  }
+
+  @Test
+  public void testHoldings() {
+    Map<String, Double> holdings = ledger.getHoldings(LocalDate.parse("2022-11-09"));
+    Assert.assertEquals(1, holdings.size());
+    Assert.assertEquals(8.0, holdings.get("GOOG"), 0.00);
+    Assert.assertEquals(2, ledger.getHoldings(LocalDate.parse("2022-12-01")).size());
+    Assert.assertEquals(0, ledger.getHoldings(LocalDate.parse("2022-01-01")).size());
+  }
+
+  @Test
+  public void testQuantityHeldAndLastSell() {
+    Assert.assertEquals(12.0, ledger.getQuantityHeld("GOOG", LocalDate.parse("2022-11-07")),
+        0.00);
+    Assert.assertEquals(8.0, ledger.getQuantityHeld("GOOG", LocalDate.parse("2022-11-08")),
+        0.00);
+    Assert.assertEquals(0.0, ledger.getQuantityHeld("AAPL", LocalDate.parse("2022-11-08")),
+        0.00);
+    Assert.assertEquals(LocalDate.parse("2022-11-08"), ledger.getLastSellDate("GOOG"));
+    Assert.assertNull(ledger.getLastSellDate("MSFT"));
+  }
+
+  @Test
+  public void testAppendKeepsDateOrder() {
+    ledger.append("AAPL", 3.0, LocalDate.parse("2022-11-05"), false, 1.0, 140.0);
+    Assert.assertEquals(5, ledger.size());
+    Assert.assertEquals("AAPL", ledger.getSymbol(2));
+    Assert.assertEquals(3, ledger.countOnOrBefore(LocalDate.parse("2022-11-05")));
+  }
+
+  @Test
+  public void testCurrentWithFile() throws IOException {
+    Assert.assertEquals(true, ledger.isCurrent(file));
+    Files.writeString(file, "\nAAPL,3.0,2022-11-05,buy,1.0,140.0", StandardOpenOption.APPEND);
+    Assert.assertEquals(false, ledger.isCurrent(file));
+    ledger.append("AAPL", 3.0, LocalDate.parse("2022-11-05"), false, 1.0, 140.0);
+    ledger.markCurrent(file);
+    Assert.assertEquals(true, ledger.isCurrent(file));
+  }
+
+  //holdings by replaying every transaction from the start
+  private double replayed(PortfolioLedger ledger, String symbol, LocalDate date) {
+    double held = 0;
+    for (int i = 0; i < ledger.size(); i++) {
+      if (ledger.getSymbol(i).equals(symbol) && !ledger.getDate(i).isAfter(date)) {
+        held += ledger.isSell(i) ? -ledger.getQuantity(i) : ledger.getQuantity(i);
+      }
+    }
+    return held;
+  }
+
+  @Test
+  public void testHoldingsFromCheckpoints() {
+    PortfolioLedger large = new PortfolioLedger();
+    Random random = new Random(42);
+    String[] symbols = {"GOOG", "MSFT", "AAPL", "IBM"};
+    LocalDate start = LocalDate.parse("2015-01-01");
+    for (int i = 0; i < 5 * PortfolioLedger.CHECKPOINT_INTERVAL; i++) {
+      large.append(symbols[random.nextInt(symbols.length)], 1 + random.nextInt(10),
+          start.plusDays(i), random.nextInt(4) == 0, 1.0, 10.0);
+    }
+    LocalDate late = start.plusDays(4 * PortfolioLedger.CHECKPOINT_INTERVAL + 7);
+    Assert.assertEquals(replayed(large, "GOOG", late), large.getHoldings(late).get("GOOG"),
+        0.00);
+
+    //a back dated transaction drops the checkpoints after it
+    large.append("GOOG", 1000, start.plusDays(PortfolioLedger.CHECKPOINT_INTERVAL + 3), false,
+        1.0, 10.0);
+    large.append("NFLX", 7, start.plusDays(2), false, 1.0, 10.0);
+    for (int i = 0; i < 40; i++) {
+      LocalDate date = start.plusDays(random.nextInt(6 * PortfolioLedger.CHECKPOINT_INTERVAL));
+      Map<String, Double> holdings = large.getHoldings(date);
+      for (String symbol : holdings.keySet()) {
+        Assert.assertEquals(replayed(large, symbol, date), holdings.get(symbol), 0.00);
+        Assert.assertEquals(replayed(large, symbol, date), large.getQuantityHeld(symbol, date),
+            0.00);
+      }
+    }
+    Assert.assertEquals(7.0, large.getHoldings(late).get("NFLX"), 0.00);
+  }
+
+  @Test
+  public void testBackDatedSell() {
+    ledger.append("MSFT", 2.0, LocalDate.parse("2022-11-20"), true, 1.0, 245.0);
+    ledger.append("GOOG", 3.0, LocalDate.parse("2022-10-20"), true, 1.0, 95.0);
+    Assert.assertEquals(2.0, ledger.getQuantityHeld("GOOG", LocalDate.parse("2022-10-03")),
+        0.00);
+    Assert.assertEquals(-1.0, ledger.getQuantityHeld("GOOG", LocalDate.parse("2022-10-31")),
+        0.00);
+    Assert.assertEquals(5.0, ledger.getQuantityHeld("GOOG", LocalDate.parse("2022-12-01")),
+        0.00);
+    Assert.assertEquals(3.0, ledger.getQuantityHeld("MSFT", LocalDate.parse("2022-12-01")),
+        0.00);
+    //the latest sell is kept, not the last one added
+    Assert.assertEquals(LocalDate.parse("2022-11-08"), ledger.getLastSellDate("GOOG"));
+    Assert.assertEquals(LocalDate.parse("2022-11-20"), ledger.getLastSellDate("MSFT"));
+  }
+
+  @Test
+  public void testCostBasis() {
+    //2 * 100.0 + 0.5 and 10 * 90.5 + 2.0, then the fee of the sell
+    Assert.assertEquals(0.0, ledger.getCostBasis(LocalDate.parse("2022-01-01")), 0.00);
+    Assert.assertEquals(1107.5, ledger.getCostBasis(LocalDate.parse("2022-11-07")), 0.001);
+    Assert.assertEquals(1109.5, ledger.getCostBasis(LocalDate.parse("2022-11-08")), 0.001);
+    Assert.assertEquals(2310.5, ledger.getCostBasis(LocalDate.parse("2022-12-01")), 0.001);
+
+    //a back dated buy is counted in the totals after it
+    ledger.append("AAPL", 3.0, LocalDate.parse("2022-11-05"), false, 1.0, 140.0);
+    Assert.assertEquals(1107.5, ledger.getCostBasis(LocalDate.parse("2022-11-04")), 0.001);
+    Assert.assertEquals(2731.5, ledger.getCostBasis(LocalDate.parse("2022-12-01")), 0.001);
+  }
+
+  @Test
+  public void testRowsWithoutPrice() throws IOException {
+    Assert.assertEquals(false, ledger.hasMissingPrices());
+    Assert.assertEquals(100.0, ledger.getPrice(0), 0.00);
+    Files.writeString(file, "\nAAPL,3.0,2022-11-05,buy,1.0", StandardOpenOption.APPEND);
+    PortfolioLedger legacy = PortfolioLedger.read(file);
+    Assert.assertEquals(true, legacy.hasMissingPrices());
+    Assert.assertEquals(true, Double.isNaN(legacy.getPrice(2)));
+    Assert.assertEquals(1107.5, legacy.getCostBasis(LocalDate.parse("2022-11-04")), 0.001);
+  }
+
+  @Test
+  public void testCostBasisLooksUpMissingPrices() throws IOException {
+    Files.writeString(file, "\nAAPL,3.0,2022-11-05,buy,1.0", StandardOpenOption.APPEND);
+    String contents = Files.readString(file);
+    PortfolioLedger legacy = PortfolioLedger.read(file);
+    List<String> lookups = new ArrayList<>();
+    PortfolioLedger.PriceLookup lookup = (symbol, date) -> {
+      lookups.add(symbol + " " + date);
+      return 140.0;
+    };
+    Assert.assertEquals(1107.5, legacy.getCostBasis(LocalDate.parse("2022-11-04"), lookup),
+        0.001);
+    Assert.assertEquals(0, lookups.size());
+    Assert.assertEquals(2731.5, legacy.getCostBasis(LocalDate.parse("2022-12-01"), lookup),
+        0.001);
+    Assert.assertEquals(List.of("AAPL 2022-11-05"), lookups);
+
+    //the price found is kept in the ledger, the file is left as it was
+    legacy.append("AAPL", 1.0, LocalDate.parse("2022-11-02"), false, 1.0, 150.0);
+    Assert.assertEquals(2882.5, legacy.getCostBasis(LocalDate.parse("2022-12-01"), lookup),
+        0.001);
+    Assert.assertEquals(1, lookups.size());
+    Assert.assertEquals(false, legacy.hasMissingPrices());
+    Assert.assertEquals(contents, Files.readString(file));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testCostBasisWithoutPrice() {
+    ledger.append("AAPL", 3.0, LocalDate.parse("2022-11-05"), false, 1.0, Double.NaN);
+    ledger.getCostBasis(LocalDate.parse("2022-11-05"));
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidRow() throws IOException {
+    Files.writeString(file, "\nAAPL,three,2022-11-05,buy,1.0", StandardOpenOption.APPEND);
+    PortfolioLedger.read(file);
+  }
+
+}
@@ -0,0 +1,222 @@
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import stockbroker.model.FetchScheduler;
+import stockbroker.model.LocalPriceDataProvider;
+import stockbroker.model.PriceDataValidator;
+import stockbroker.model.PriceSeriesCache;
+import stockbroker.model.PriceStore;
+import stockbroker.model.QuoteCache;
+import stockbroker.model.RetryBackoff;
+import stockbroker.model.StockBroker;
+
+/**
+ * A class to test the refresh of a cached price history from the compact window of the provider.
+ */
+public class PriceCacheRefreshTest {
+
+  //serves {symbol}.csv as the full history and {symbol}-compact.csv as the recent window
+  private static class WindowedProvider extends LocalPriceDataProvider {
+
+    private final AtomicInteger fullRequests = new AtomicInteger();
+    private final AtomicInteger compactRequests = new AtomicInteger();
+
+    WindowedProvider(Path source) throws IOException {
+      super(source);
+    }
+
+    @Override
+    public InputStream openDailySeries(String symbol, boolean full) throws IOException {
+      if (full) {
+        fullRequests.incrementAndGet();
+        return super.openDailySeries(symbol, true);
+      }
+      compactRequests.incrementAndGet();
+      return super.openDailySeries(symbol + "-compact", false);
+    }
+  }
+
+  //downloads and refreshes the price history of a symbol in the cache, with its own backoff
+  private static class RefreshingBroker extends StockBroker {
+
+    RefreshingBroker(LocalPriceDataProvider priceDataProvider) {
+      super(priceDataProvider, defaultFetchScheduler(priceDataProvider),
+          new PriceSeriesCache(16, 1 << 20),
+          new QuoteCache(Duration.ofSeconds(60), Clock.systemUTC()),
+          new RetryBackoff(Duration.ofMinutes(1), Duration.ofHours(6), Clock.systemUTC()));
+    }
+
+    void download(String symbol) throws IOException {
+      createCache(symbol, FetchScheduler.Priority.INTERACTIVE);
+    }
+
+    void refresh(String symbol) throws IOException {
+      updateCache(symbol);
+    }
+
+    double close(String symbol, String date) throws IOException {
+      return getPriceSeries(symbol).getClosePrice(LocalDate.parse(date));
+    }
+  }
+
+  private static final String SYMBOL = "REFRESHED";
+  private static final String NOV_08 = "2022-11-08,90.5,91.2,89.9,91.0,2100";
+  private static final String NOV_07 = "2022-11-07,89.1,90.6,88.7,90.4,2000";
+  private static final String NOV_04 = "2022-11-04,87.2,89.0,86.9,88.6,1900";
+  private static final String NOV_03 = "2022-11-03,86.0,87.5,85.8,87.1,1800";
+  private static final String NOV_02 = "2022-11-02,85.4,86.3,84.9,85.9,1700";
+  private static final String NOV_01 = "2022-11-01,84.8,85.7,84.2,85.2,1600";
+
+  private final PriceStore store = new PriceStore(Path.of("misc"));
+  private Path dir;
+  private WindowedProvider provider;
+  private RefreshingBroker broker;
+
+  @Before
+  public void setup() throws IOException {
+    Files.createDirectories(Path.of("misc"));
+    teardown();
+    dir = Files.createTempDirectory("priceData");
+    history(SYMBOL, NOV_03, NOV_02, NOV_01);
+    provider = new WindowedProvider(dir);
+    broker = new RefreshingBroker(provider);
+    broker.download(SYMBOL);
+  }
+
+  @After
+  public void teardown() throws IOException {
+    //the cached files and the quarantined windows of the symbol
+    deleteMatching(Path.of("misc"), SYMBOL + ".*");
+    Path quarantine = Path.of("misc", "quarantine");
+    if (Files.isDirectory(quarantine)) {
+      deleteMatching(quarantine, SYMBOL + "-*.csv");
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(quarantine)) {
+        if (!files.iterator().hasNext()) {
+          Files.delete(quarantine);
+        }
+      }
+    }
+  }
+
+  private static void deleteMatching(Path directory, String glob) throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, glob)) {
+      for (Path file : files) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  private void history(String fileName, String... rows) throws IOException {
+    StringBuilder csv = new StringBuilder(PriceDataValidator.HEADER).append("\r\n");
+    for (String row : rows) {
+      csv.append(row).append("\r\n");
+    }
+    Files.writeString(dir.resolve(fileName + ".csv"), csv, StandardCharsets.UTF_8);
+  }
+
+  private List<String> cachedRows() throws IOException {
+    return Files.readAllLines(store.csvPath(SYMBOL), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testOverlappingWindowIsMerged() throws IOException {
+    history(SYMBOL + "-compact", NOV_07, NOV_04, NOV_03, NOV_02);
+    broker.refresh(SYMBOL);
+
+    //the rows up to the last cached day are dropped, the header of the window is not a row
+    Assert.assertEquals(List.of(PriceDataValidator.HEADER, NOV_07, NOV_04, NOV_03, NOV_02,
+        NOV_01), cachedRows());
+    Assert.assertEquals(1, provider.fullRequests.get());
+    Assert.assertEquals(1, provider.compactRequests.get());
+    Assert.assertEquals(90.4, broker.close(SYMBOL, "2022-11-07"), 0.001);
+    Assert.assertEquals(87.1, broker.close(SYMBOL, "2022-11-03"), 0.001);
+  }
+
+  @Test
+  public void testWindowEndingAtTheCacheIsMerged() throws IOException {
+    //the oldest day of the window is the last cached day
+    history(SYMBOL + "-compact", NOV_04, NOV_03);
+    broker.refresh(SYMBOL);
+
+    Assert.assertEquals(List.of(PriceDataValidator.HEADER, NOV_04, NOV_03, NOV_02, NOV_01),
+        cachedRows());
+    Assert.assertEquals(1, provider.fullRequests.get());
+  }
+
+  @Test
+  public void testWindowWithoutNewRowsKeepsTheCache() throws IOException {
+    List<String> before = cachedRows();
+    history(SYMBOL + "-compact", NOV_03, NOV_02);
+    broker.refresh(SYMBOL);
+
+    Assert.assertEquals(before, cachedRows());
+    Assert.assertEquals(1, provider.fullRequests.get());
+    Assert.assertEquals(1, provider.compactRequests.get());
+  }
+
+  @Test
+  public void testGapFallsBackToFullDownload() throws IOException {
+    //the window starts after the last cached day, the day in between is only in the full history
+    history(SYMBOL + "-compact", NOV_08, NOV_07);
+    history(SYMBOL, NOV_08, NOV_07, NOV_04, NOV_03, NOV_02, NOV_01);
+    broker.refresh(SYMBOL);
+
+    Assert.assertEquals(List.of(PriceDataValidator.HEADER, NOV_08, NOV_07, NOV_04, NOV_03,
+        NOV_02, NOV_01), cachedRows());
+    Assert.assertEquals(2, provider.fullRequests.get());
+    Assert.assertEquals(1, provider.compactRequests.get());
+    Assert.assertEquals(88.6, broker.close(SYMBOL, "2022-11-04"), 0.001);
+  }
+
+  @Test
+  public void testWindowWithoutHeaderKeepsTheCache() throws IOException {
+    List<String> before = cachedRows();
+    Files.writeString(dir.resolve(SYMBOL + "-compact.csv"), NOV_07 + "\r\n" + NOV_04 + "\r\n",
+        StandardCharsets.UTF_8);
+    try {
+      broker.refresh(SYMBOL);
+      Assert.fail("merged a window without a header");
+    } catch (IOException e) {
+      Assert.assertEquals(before, cachedRows());
+    }
+    Assert.assertEquals(1, provider.fullRequests.get());
+    try (DirectoryStream<Path> quarantined = Files.newDirectoryStream(
+        Path.of("misc", "quarantine"), SYMBOL + "-*.csv")) {
+      Assert.assertEquals(true, quarantined.iterator().hasNext());
+    }
+  }
+
+  @Test
+  public void testRejectedWindowBacksOff() throws IOException {
+    Files.writeString(dir.resolve(SYMBOL + "-compact.csv"), NOV_07 + "\r\n",
+        StandardCharsets.UTF_8);
+    try {
+      broker.refresh(SYMBOL);
+      Assert.fail("merged a window without a header");
+    } catch (IOException e) {
+      //rejected by the validator
+    }
+    try {
+      broker.refresh(SYMBOL);
+      Assert.fail("refreshed a symbol backing off");
+    } catch (IOException e) {
+      Assert.assertEquals(true, e.getMessage().contains("retry after"));
+    }
+    Assert.assertEquals(1, provider.compactRequests.get());
+  }
+
+}
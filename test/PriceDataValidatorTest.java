@@ -0,0 +1,138 @@
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import stockbroker.model.FetchScheduler;
+import stockbroker.model.PriceDataProvider;
+import stockbroker.model.PriceDataValidator;
+import stockbroker.model.StockBroker;
+
+/**
+ * A class to test the validation of downloaded price histories.
+ */
+public class PriceDataValidatorTest {
+
+  //answers the request limit note to every request
+  private static class ThrottledProvider implements PriceDataProvider {
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private InputStream note() {
+      requests.incrementAndGet();
+      return new ByteArrayInputStream(("{\n    \"Note\": \"Thank you for using Alpha Vantage! Our "
+          + "standard API call frequency is 5 calls per minute and 500 calls per day.\"\n}")
+          .getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public InputStream openDailySeries(String symbol, boolean full) {
+      return note();
+    }
+
+    @Override
+    public InputStream openQuote(String symbol) {
+      return note();
+    }
+
+    @Override
+    public InputStream openListing() {
+      return note();
+    }
+
+    @Override
+    public int getRequestsPerMinute() {
+      return 1000;
+    }
+  }
+
+  //downloads the price history of a symbol in to the cache
+  private static class CachingBroker extends StockBroker {
+
+    CachingBroker(PriceDataProvider priceDataProvider) {
+      super(priceDataProvider);
+    }
+
+    void download(String symbol) throws IOException {
+      createCache(symbol, FetchScheduler.Priority.INTERACTIVE);
+    }
+  }
+
+  private PriceDataValidator validator;
+
+  @Before
+  public void setup() {
+    validator = new PriceDataValidator();
+  }
+
+  @Test
+  public void testValidHistory() throws IOException {
+    Assert.assertEquals(2, validator.validate("GOOG", List.of(PriceDataValidator.HEADER,
+        "2022-11-15,98.67,100.42,97.02,98.72,31831028",
+        "2022-11-14,95.5,97.18,95.11,95.7,24170096")));
+  }
+
+  @Test(expected = PriceDataValidator.ThrottledException.class)
+  public void testRateLimitNote() throws IOException {
+    validator.validate("GOOG", List.of("{",
+        "    \"Note\": \"Thank you for using Alpha Vantage! Our standard API call frequency is 5 "
+            + "calls per minute and 500 calls per day.\"", "}"));
+  }
+
+  @Test
+  public void testInvalidSymbolIsNotThrottled() {
+    try {
+      validator.validate("GOOGLE", List.of("{",
+          "    \"Error Message\": \"Invalid API call. Please retry or visit the documentation "
+              + "for TIME_SERIES_DAILY.\"", "}"));
+      Assert.fail("accepted an error message");
+    } catch (IOException e) {
+      Assert.assertEquals(false, e instanceof PriceDataValidator.ThrottledException);
+    }
+  }
+
+  @Test
+  public void testThrottledSymbolIsNotBackedOff() throws IOException {
+    Files.createDirectories(Path.of("misc"));
+    ThrottledProvider provider = new ThrottledProvider();
+    CachingBroker broker = new CachingBroker(provider);
+    for (int i = 0; i < 2; i++) {
+      try {
+        broker.download("THROTTLED");
+        Assert.fail("cached a request limit note");
+      } catch (IOException e) {
+        //each attempt reaches the provider, the symbol is not held back
+        Assert.assertEquals(true, e.getMessage().contains("throttled"));
+      }
+    }
+    Assert.assertEquals(2, provider.requests.get());
+    Assert.assertEquals(false, Files.exists(Path.of("misc", "THROTTLED.csv")));
+  }
+
+  @Test(expected = IOException.class)
+  public void testHeaderOnly() throws IOException {
+    validator.validate("GOOG", List.of(PriceDataValidator.HEADER));
+  }
+
+  @Test(expected = IOException.class)
+  public void testDatesOutOfOrder() throws IOException {
+    validator.validate("GOOG", List.of(PriceDataValidator.HEADER,
+        "2022-11-14,95.5,97.18,95.11,95.7,24170096",
+        "2022-11-15,98.67,100.42,97.02,98.72,31831028"));
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnparseablePrice() throws IOException {
+    validator.validate("GOOG", List.of(PriceDataValidator.HEADER,
+        "2022-11-15,98.67,100.42,97.02,n/a,31831028"));
+  }
+
+}
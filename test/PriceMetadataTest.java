@@ -0,0 +1,82 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import stockbroker.model.PriceMetadata;
+import stockbroker.model.PriceStore;
+
+/**
+ * A class to test the freshness metadata of the cached price histories.
+ */
+public class PriceMetadataTest {
+
+  private final PriceMetadata metadata = new PriceMetadata(LocalDate.parse("2004-08-19"),
+      LocalDate.parse("2022-11-18"), Instant.parse("2022-11-21T15:00:00Z"));
+
+  @Test
+  public void testDateBeforeHistory() {
+    Assert.assertEquals(false, metadata.needsFetch(LocalDate.parse("2001-01-02")));
+  }
+
+  @Test
+  public void testDateWithinHistory() {
+    Assert.assertEquals(false, metadata.needsFetch(LocalDate.parse("2022-11-12")));
+    Assert.assertEquals(false, metadata.needsFetch(LocalDate.parse("2022-11-18")));
+  }
+
+  @Test
+  public void testDateOverAtLastFetch() {
+    Assert.assertEquals(false, metadata.needsFetch(LocalDate.parse("2022-11-20")));
+  }
+
+  @Test
+  public void testDateAfterLastFetch() {
+    Assert.assertEquals(true, metadata.needsFetch(LocalDate.parse("2022-11-21")));
+    Assert.assertEquals(true, metadata.needsFetch(LocalDate.parse("2022-11-25")));
+  }
+
+  @Test
+  public void testSessionNotYetPublished() {
+    //fetched at 20:00 in New York, already the next day in UTC
+    PriceMetadata evening = new PriceMetadata(LocalDate.parse("2004-08-19"),
+        LocalDate.parse("2022-11-18"), Instant.parse("2022-11-22T01:00:00Z"));
+    Assert.assertEquals(true, evening.needsFetch(LocalDate.parse("2022-11-21")));
+    Assert.assertEquals(false, evening.needsFetch(LocalDate.parse("2022-11-20")));
+
+    //fetched once the session was published
+    PriceMetadata night = new PriceMetadata(LocalDate.parse("2004-08-19"),
+        LocalDate.parse("2022-11-18"), Instant.parse("2022-11-22T03:00:00Z"));
+    Assert.assertEquals(false, night.needsFetch(LocalDate.parse("2022-11-21")));
+    Assert.assertEquals(true, night.needsFetch(LocalDate.parse("2022-11-22")));
+  }
+
+  @Test
+  public void testEmptyHistory() {
+    PriceMetadata empty = new PriceMetadata(null, null, Instant.parse("2022-11-21T15:00:00Z"));
+    Assert.assertEquals(true, empty.needsFetch(LocalDate.parse("2022-11-12")));
+  }
+
+  @Test
+  public void testStoreRoundTrip() throws IOException {
+    PriceStore store = new PriceStore(Files.createTempDirectory("misc"));
+    Assert.assertNull(store.readMetadata("GOOG"));
+    store.writeMetadata("GOOG", metadata);
+    PriceMetadata read = store.readMetadata("GOOG");
+    Assert.assertEquals(metadata.getFirstDate(), read.getFirstDate());
+    Assert.assertEquals(metadata.getLastDate(), read.getLastDate());
+    Assert.assertEquals(metadata.getLastFetched(), read.getLastFetched());
+  }
+
+  @Test(expected = IOException.class)
+  public void testMalformedFile() throws IOException {
+    Path file = Files.createTempFile("GOOG", ".meta");
+    Files.writeString(file, "lastDate=yesterday\n");
+    PriceMetadata.read(file);
+  }
+
+}
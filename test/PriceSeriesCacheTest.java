@@ -0,0 +1,166 @@
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import stockbroker.model.IPriceSeries;
+import stockbroker.model.PriceSeries;
+import stockbroker.model.PriceSeriesCache;
+
+/**
+ * A class to test the bounded cache of price series.
+ */
+public class PriceSeriesCacheTest {
+
+  private PriceSeriesCache cache;
+  private PriceSeriesCache.Loader loader;
+
+  @Before
+  public void setup() {
+    cache = new PriceSeriesCache(2, 1024);
+    loader = symbol -> new PriceSeries(symbol, new int[]{19300, 19301}, new double[]{10, 11});
+  }
+
+  @Test
+  public void testHitAndMiss() throws IOException {
+    IPriceSeries first = cache.get("GOOG", loader);
+    IPriceSeries second = cache.get("GOOG", loader);
+    Assert.assertSame(first, second);
+    Assert.assertEquals(1, cache.getHitCount());
+    Assert.assertEquals(1, cache.getMissCount());
+    Assert.assertEquals(1, cache.getLoadCount());
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() throws IOException {
+    cache.get("GOOG", loader);
+    cache.get("INFY", loader);
+    cache.get("GOOG", loader);
+    cache.get("TTM", loader);
+    Assert.assertEquals(2, cache.size());
+    Assert.assertEquals(1, cache.getEvictionCount());
+    Assert.assertEquals(true, cache.contains("GOOG"));
+    Assert.assertEquals(false, cache.contains("INFY"));
+  }
+
+  @Test
+  public void testEvictsOverByteBudget() throws IOException {
+    PriceSeriesCache small = new PriceSeriesCache(10, 2 * PriceSeriesCache.BYTES_PER_DAY);
+    small.get("GOOG", loader);
+    small.get("INFY", loader);
+    Assert.assertEquals(1, small.size());
+    Assert.assertEquals(2 * PriceSeriesCache.BYTES_PER_DAY, small.getWeight());
+  }
+
+  @Test
+  public void testInvalidate() throws IOException {
+    cache.get("GOOG", loader);
+    cache.invalidate("GOOG");
+    Assert.assertEquals(0, cache.getWeight());
+    cache.get("GOOG", loader);
+    Assert.assertEquals(2, cache.getLoadCount());
+  }
+
+  //starts a load of GOOG that blocks until released
+  private CompletableFuture<IPriceSeries> slowLoad(CountDownLatch started,
+      CountDownLatch release) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return cache.get("GOOG", symbol -> {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return loader.load(symbol);
+        });
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+  }
+
+  @Test
+  public void testSlowLoadDoesNotBlockOtherSymbols() throws Exception {
+    cache.get("INFY", loader);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<IPriceSeries> slow = slowLoad(started, release);
+    started.await();
+
+    //a hit and the counters answer while GOOG is still loading
+    CompletableFuture<IPriceSeries> hit = CompletableFuture.supplyAsync(() -> {
+      try {
+        return cache.get("INFY", loader);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    Assert.assertEquals("INFY", hit.get(5, TimeUnit.SECONDS).getSymbol());
+    Assert.assertEquals(1, cache.getHitCount());
+    release.countDown();
+    Assert.assertEquals("GOOG", slow.get(5, TimeUnit.SECONDS).getSymbol());
+  }
+
+  @Test
+  public void testConcurrentMissesShareOneLoad() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<IPriceSeries> first = slowLoad(started, release);
+    started.await();
+    CompletableFuture<IPriceSeries> second = slowLoad(new CountDownLatch(1), release);
+    //give the second lookup time to join the load
+    Thread.sleep(100);
+    release.countDown();
+    Assert.assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+    Assert.assertEquals(1, cache.getLoadCount());
+    Assert.assertEquals(2, cache.getMissCount());
+  }
+
+  @Test
+  public void testLoadInvalidatedWhileInProgressIsNotKept() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<IPriceSeries> slow = slowLoad(started, release);
+    started.await();
+    cache.invalidate("GOOG");
+    release.countDown();
+    slow.get(5, TimeUnit.SECONDS);
+    Assert.assertEquals(false, cache.contains("GOOG"));
+  }
+
+  //a series counting its releases
+  private static class ReleasedSeries extends PriceSeries {
+
+    private int releases;
+
+    ReleasedSeries(String symbol) {
+      super(symbol, new int[]{19300, 19301}, new double[]{10, 11});
+    }
+
+    @Override
+    public void release() {
+      releases++;
+    }
+  }
+
+  @Test
+  public void testDroppedSeriesAreReleased() throws IOException {
+    ReleasedSeries goog = new ReleasedSeries("GOOG");
+    ReleasedSeries infy = new ReleasedSeries("INFY");
+    cache.get("GOOG", symbol -> goog);
+    cache.get("INFY", symbol -> infy);
+    cache.invalidate("GOOG");
+    Assert.assertEquals(1, goog.releases);
+    cache.get("TTM", loader);
+    cache.get("GOOG", loader);
+    //evicted as the least recently used
+    Assert.assertEquals(1, infy.releases);
+  }
+
+}
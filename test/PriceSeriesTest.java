@@ -0,0 +1,54 @@
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import stockbroker.model.PriceSeries;
+
+/**
+ * A class to test the in-memory price series of a stock.
+ */
+public class PriceSeriesTest {
+
+  private PriceSeries series;
+
+  @Before
+  public void setup() throws IOException {
+    Path file = Files.createTempFile("GOOG", ".csv");
+    Files.writeString(file, "timestamp,open,high,low,close,volume\n"
+        + "2022-11-15,98.67,100.42,97.02,98.72,31831028\n"
+        + "2022-11-14,95.5,97.18,95.11,95.7,24170096\n"
+        + "2022-11-11,94.71,97.36,94.16,96.73,30569107\n");
+    series = PriceSeries.fromCsv("GOOG", file);
+    Files.delete(file);
+  }
+
+  @Test
+  public void testSeriesIsSortedByDate() {
+    Assert.assertEquals(3, series.size());
+    Assert.assertEquals(LocalDate.parse("2022-11-11"), series.getFirstDate());
+    Assert.assertEquals(LocalDate.parse("2022-11-15"), series.getLastDate());
+  }
+
+  @Test
+  public void testGetClosePrice() {
+    Assert.assertEquals(95.7, series.getClosePrice(LocalDate.parse("2022-11-14")), 0.00);
+    Assert.assertEquals(98.72, series.getClosePrice(LocalDate.parse("2022-11-15")), 0.00);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetClosePriceOnHoliday() {
+    series.getClosePrice(LocalDate.parse("2022-11-12"));
+  }
+
+  @Test
+  public void testHasPriceOn() {
+    Assert.assertEquals(true, series.hasPriceOn(LocalDate.parse("2022-11-11")));
+    Assert.assertEquals(false, series.hasPriceOn(LocalDate.parse("2022-11-13")));
+  }
+
+}
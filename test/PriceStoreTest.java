@@ -0,0 +1,80 @@
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import stockbroker.model.IPriceSeries;
+import stockbroker.model.PriceStore;
+
+/**
+ * A class to test the binary price store built from the cached csv files.
+ */
+public class PriceStoreTest {
+
+  private Path dir;
+  private PriceStore store;
+
+  @Before
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("misc");
+    Files.writeString(dir.resolve("GOOG.csv"), "timestamp,open,high,low,close,volume\n"
+        + "2022-11-15,98.67,100.42,97.02,98.72,31831028\n"
+        + "2022-11-14,95.5,97.18,95.11,95.7,24170096\n"
+        + "2022-11-11,94.71,97.36,94.16,96.73,30569107\n");
+    store = new PriceStore(dir);
+  }
+
+  @Test
+  public void testLoadConvertsCsvToBinary() throws IOException {
+    Assert.assertEquals(false, Files.exists(store.binaryPath("GOOG")));
+    store.load("GOOG");
+    Assert.assertEquals(true, Files.exists(store.binaryPath("GOOG")));
+  }
+
+  @Test
+  public void testMappedSeries() throws IOException {
+    IPriceSeries series = store.load("GOOG");
+    Assert.assertEquals("GOOG", series.getSymbol());
+    Assert.assertEquals(3, series.size());
+    Assert.assertEquals(LocalDate.parse("2022-11-11"), series.getFirstDate());
+    Assert.assertEquals(LocalDate.parse("2022-11-15"), series.getLastDate());
+    Assert.assertEquals(95.7, series.getClosePrice(LocalDate.parse("2022-11-14")), 0.00);
+    Assert.assertEquals(false, series.hasPriceOn(LocalDate.parse("2022-11-12")));
+  }
+
+  @Test
+  public void testLoadWithoutCsvReadsBinary() throws IOException {
+    store.load("GOOG");
+    Files.delete(store.csvPath("GOOG"));
+    Assert.assertEquals(98.72, store.load("GOOG").getClosePrice(LocalDate.parse("2022-11-15")),
+        0.00);
+  }
+
+  @Test(expected = IOException.class)
+  public void testLoadMissingSymbol() throws IOException {
+    store.load("INFY");
+  }
+
+  @Test
+  public void testReleasedSeriesOutlivesItsFile() throws IOException {
+    IPriceSeries series = store.load("GOOG");
+    series.release();
+    store.invalidate("GOOG");
+    Assert.assertEquals(false, Files.exists(store.binaryPath("GOOG")));
+    Assert.assertEquals(95.7, series.getClosePrice(LocalDate.parse("2022-11-14")), 0.00);
+    Assert.assertEquals(LocalDate.parse("2022-11-15"), series.getLastDate());
+  }
+
+  @Test
+  public void testArchiveConversionDropsCsv() throws IOException {
+    PriceStore archive = new PriceStore(dir, PriceStore.Format.ARCHIVE);
+    Assert.assertEquals(96.73, archive.load("GOOG").getClosePrice(LocalDate.parse("2022-11-11")),
+        0.00);
+    Assert.assertEquals(false, Files.exists(archive.csvPath("GOOG")));
+  }
+
+}
@@ -0,0 +1,159 @@
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import stockbroker.model.FetchScheduler;
+import stockbroker.model.PriceDataProvider;
+import stockbroker.model.PriceSeriesCache;
+import stockbroker.model.QuoteCache;
+import stockbroker.model.StockBroker;
+
+/**
+ * A class to test the cache of the latest quotes.
+ */
+public class QuoteCacheTest {
+
+  private static class TestClock extends Clock {
+
+    private Instant now = Instant.parse("2022-11-21T15:00:00Z");
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+  }
+
+  //answers a quote row for GOOG, and the rate limit note or a short row for the other symbols
+  private static class ThrottledProvider implements PriceDataProvider {
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @Override
+    public InputStream openDailySeries(String symbol, boolean full) throws IOException {
+      throw new IOException("No daily series in this test");
+    }
+
+    @Override
+    public InputStream openQuote(String symbol) {
+      requests.incrementAndGet();
+      String row;
+      if (symbol.equals("GOOG")) {
+        row = "GOOG,97.0,99.0,96.5,98.72,24969900,2022-11-18,97.8,0.92,0.94%";
+      } else if (symbol.equals("MSFT")) {
+        row = "MSFT,241.2";
+      } else {
+        row = "{\"Note\": \"Thank you for using Alpha Vantage! Our standard API call frequency is"
+            + " 5 calls per minute and 500 calls per day.\"}";
+      }
+      return new ByteArrayInputStream(("symbol,open,high,low,price,volume,latestDay,"
+          + "previousClose,change,changePercent\n" + row).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public InputStream openListing() throws IOException {
+      throw new IOException("No listing in this test");
+    }
+
+    @Override
+    public int getRequestsPerMinute() {
+      return 1000;
+    }
+  }
+
+  //looks up the latest price of a symbol through the quote cache of the model
+  private static class QuoteBroker extends StockBroker {
+
+    QuoteBroker(PriceDataProvider priceDataProvider) {
+      super(priceDataProvider, new FetchScheduler(1000, 2), new PriceSeriesCache(16, 1 << 20),
+          new QuoteCache(Duration.ofSeconds(60), Clock.systemUTC()));
+    }
+
+    double getLatestPrice(String symbol) {
+      setStockSymbol(symbol);
+      return getStockValueOnADate("latest");
+    }
+  }
+
+  private TestClock clock;
+  private QuoteCache cache;
+
+  @Before
+  public void setup() {
+    clock = new TestClock();
+    cache = new QuoteCache(Duration.ofSeconds(60), clock);
+  }
+
+  @Test
+  public void testFreshQuote() {
+    cache.put("GOOG", 98.72, "2022-11-18");
+    clock.now = clock.now.plusSeconds(59);
+    Assert.assertEquals(98.72, cache.get("GOOG").getPrice(), 0.00);
+    Assert.assertEquals("2022-11-18", cache.get("GOOG").getDate());
+  }
+
+  @Test
+  public void testExpiredQuote() {
+    cache.put("GOOG", 98.72, "2022-11-18");
+    clock.now = clock.now.plusSeconds(60);
+    Assert.assertNull(cache.get("GOOG"));
+  }
+
+  @Test
+  public void testStaleSymbols() {
+    cache.put("GOOG", 98.72, "2022-11-18");
+    clock.now = clock.now.plusSeconds(30);
+    cache.put("MSFT", 241.22, "2022-11-18");
+    clock.now = clock.now.plusSeconds(40);
+    List<String> stale = cache.stale(Arrays.asList("AAPL", "GOOG", "MSFT", "AAPL"));
+    Assert.assertEquals(Arrays.asList("AAPL", "GOOG"), stale);
+  }
+
+  @Test
+  public void testRefreshSkipsMalformedQuotes() throws IOException {
+    ThrottledProvider provider = new ThrottledProvider();
+    QuoteBroker broker = new QuoteBroker(provider);
+    broker.refreshQuotes(Arrays.asList("IBM", "GOOG", "MSFT"));
+    Assert.assertEquals(3, provider.requests.get());
+
+    //the valid quote was cached even though the others failed
+    Assert.assertEquals(98.72, broker.getLatestPrice("GOOG"), 0.00);
+    Assert.assertEquals(3, provider.requests.get());
+    try {
+      broker.getLatestPrice("MSFT");
+      Assert.fail("cached a malformed quote");
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals(4, provider.requests.get());
+    }
+  }
+
+  @Test
+  public void testInvalidate() {
+    cache.put("GOOG", 98.72, "2022-11-18");
+    cache.invalidate("GOOG");
+    Assert.assertNull(cache.get("GOOG"));
+  }
+
+}
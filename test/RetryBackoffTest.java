@@ -0,0 +1,83 @@
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import stockbroker.model.RetryBackoff;
+
+/**
+ * A class to test the backoff of the rejected symbols.
+ */
+public class RetryBackoffTest {
+
+  private static class TestClock extends Clock {
+
+    private Instant now = Instant.parse("2022-11-21T15:00:00Z");
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+  }
+
+  private TestClock clock;
+  private RetryBackoff backoff;
+
+  @Before
+  public void setup() {
+    clock = new TestClock();
+    backoff = new RetryBackoff(Duration.ofMinutes(1), Duration.ofMinutes(3), clock);
+  }
+
+  private boolean allowed(String symbol) {
+    try {
+      backoff.checkAllowed(symbol);
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  @Test
+  public void testDelayDoublesUpToTheMaximum() {
+    backoff.recordFailure("GOOGLE");
+    Assert.assertEquals(false, allowed("GOOGLE"));
+    Assert.assertEquals(true, allowed("GOOG"));
+    clock.now = clock.now.plus(Duration.ofMinutes(1));
+    Assert.assertEquals(true, allowed("GOOGLE"));
+
+    backoff.recordFailure("GOOGLE");
+    clock.now = clock.now.plus(Duration.ofSeconds(119));
+    Assert.assertEquals(false, allowed("GOOGLE"));
+    clock.now = clock.now.plus(Duration.ofSeconds(1));
+    Assert.assertEquals(true, allowed("GOOGLE"));
+
+    backoff.recordFailure("GOOGLE");
+    clock.now = clock.now.plus(Duration.ofMinutes(3));
+    Assert.assertEquals(true, allowed("GOOGLE"));
+  }
+
+  @Test
+  public void testSuccessClearsTheBackoff() {
+    backoff.recordFailure("GOOGLE");
+    backoff.recordSuccess("GOOGLE");
+    Assert.assertEquals(true, allowed("GOOGLE"));
+  }
+
+}
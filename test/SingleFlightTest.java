@@ -0,0 +1,116 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import stockbroker.model.SingleFlight;
+
+/**
+ * A class to test the coalescing of concurrent work on the same key.
+ */
+public class SingleFlightTest {
+
+  @Test
+  public void testConcurrentCallersShareOneRun() throws Exception {
+    SingleFlight<String, Integer> flight = new SingleFlight<>();
+    AtomicInteger runs = new AtomicInteger();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> {
+      try {
+        return flight.run("GOOG", () -> {
+          runs.incrementAndGet();
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return 42;
+        });
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    started.await();
+    CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() -> {
+      try {
+        return flight.run("GOOG", runs::incrementAndGet);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    //give the second caller time to join the flight
+    Thread.sleep(100);
+    release.countDown();
+
+    Assert.assertEquals(42, (int) first.get(5, TimeUnit.SECONDS));
+    Assert.assertEquals(42, (int) second.get(5, TimeUnit.SECONDS));
+    Assert.assertEquals(1, runs.get());
+    Assert.assertEquals(false, flight.isInFlight("GOOG"));
+  }
+
+  @Test
+  public void testSequentialCallersRunAgain() throws IOException {
+    SingleFlight<String, Integer> flight = new SingleFlight<>();
+    AtomicInteger runs = new AtomicInteger();
+    flight.run("GOOG", runs::incrementAndGet);
+    flight.run("GOOG", runs::incrementAndGet);
+    Assert.assertEquals(2, runs.get());
+  }
+
+  @Test(expected = IOException.class)
+  public void testFailureIsPropagated() throws IOException {
+    new SingleFlight<String, Integer>().run("GOOG", () -> {
+      throw new IOException("download failed");
+    });
+  }
+
+  @Test
+  public void testErrorReachesWaitingCallers() throws Exception {
+    SingleFlight<String, Integer> flight = new SingleFlight<>();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> {
+      try {
+        return flight.run("GOOG", () -> {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          throw new AssertionError("work failed");
+        });
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    started.await();
+    CompletableFuture<Throwable> second = CompletableFuture.supplyAsync(() -> {
+      try {
+        flight.run("GOOG", () -> 1);
+        return null;
+      } catch (Throwable e) {
+        return e;
+      }
+    });
+    //give the second caller time to join the flight
+    Thread.sleep(100);
+    release.countDown();
+
+    //the waiting caller gets the error itself, and the key is free again
+    Assert.assertEquals(AssertionError.class, second.get(5, TimeUnit.SECONDS).getClass());
+    Assert.assertEquals(true, first.handle((result, e) -> e).get(5, TimeUnit.SECONDS)
+        .getCause() instanceof AssertionError);
+    Assert.assertEquals(false, flight.isInFlight("GOOG"));
+    Assert.assertEquals(2, (int) flight.run("GOOG", () -> 2));
+  }
+
+}
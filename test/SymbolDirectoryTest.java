@@ -0,0 +1,86 @@
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import stockbroker.model.SymbolDirectory;
+
+/**
+ * A class to test the symbol directory indexed from the stock listing.
+ */
+public class SymbolDirectoryTest {
+
+  private static final String HEADER = "symbol,name,exchange,assetType,ipoDate,delistingDate,"
+      + "status\n";
+
+  private Path file;
+  private SymbolDirectory directory;
+
+  @Before
+  public void setup() throws IOException {
+    file = Files.createTempFile("stockList", ".csv");
+    Files.writeString(file, HEADER
+        + "GOOG,Alphabet Inc - Class C,NASDAQ,Stock,2014-03-27,null,Active\n"
+        + "MSFT,Microsoft Corporation,NASDAQ,Stock,1986-03-13,null,Active\n");
+    directory = new SymbolDirectory(file);
+  }
+
+  @Test
+  public void testLookup() throws IOException {
+    SymbolDirectory.Listing listing = directory.lookup("MSFT");
+    Assert.assertEquals("MSFT", listing.getSymbol());
+    Assert.assertEquals("Microsoft Corporation", listing.getName());
+    Assert.assertEquals("NASDAQ", listing.getExchange());
+    Assert.assertEquals(2, directory.size());
+  }
+
+  @Test
+  public void testUnlistedSymbol() throws IOException {
+    Assert.assertNull(directory.lookup("INFY"));
+    Assert.assertNull(directory.lookup("symbol"));
+  }
+
+  @Test
+  public void testReloadOnChange() throws IOException {
+    Assert.assertNull(directory.lookup("IBM"));
+    Files.writeString(file, HEADER
+        + "IBM,International Business Machines Corp,NYSE,Stock,1962-01-02,null,Active\n");
+    directory.refresh().join();
+    Assert.assertEquals("NYSE", directory.lookup("IBM").getExchange());
+    Assert.assertNull(directory.lookup("GOOG"));
+  }
+
+  @Test
+  public void testChangedFileIndexedInBackground() throws IOException, InterruptedException {
+    Assert.assertNotNull(directory.lookup("GOOG"));
+    Files.writeString(file, HEADER
+        + "IBM,International Business Machines Corp,NYSE,Stock,1962-01-02,null,Active\n");
+    //the lookup that notices the change is still answered from the previous index
+    directory.lookup("GOOG");
+    for (int i = 0; i < 100 && directory.lookup("IBM") == null; i++) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals("NYSE", directory.lookup("IBM").getExchange());
+  }
+
+  @Test
+  public void testValidateListing() throws IOException {
+    Assert.assertEquals(2, SymbolDirectory.validate(file));
+  }
+
+  @Test(expected = IOException.class)
+  public void testValidateRejectsErrorPayload() throws IOException {
+    Path payload = Files.createTempFile("stockList", ".csv");
+    Files.writeString(payload, "{\"Note\": \"API call frequency exceeded\"}\n");
+    SymbolDirectory.validate(payload);
+  }
+
+  @Test(expected = IOException.class)
+  public void testMissingFile() throws IOException {
+    new SymbolDirectory(file.resolveSibling("missing.csv")).lookup("GOOG");
+  }
+
+}
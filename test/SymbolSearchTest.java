@@ -0,0 +1,64 @@
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import stockbroker.model.SymbolDirectory;
+
+/**
+ * A class to test the prefix search over the symbols and names of the listed stocks.
+ */
+public class SymbolSearchTest {
+
+  private SymbolDirectory directory;
+
+  @Before
+  public void setup() throws IOException {
+    Path file = Files.createTempFile("stockList", ".csv");
+    Files.writeString(file, "symbol,name,exchange,assetType,ipoDate,delistingDate,status\n"
+        + "GOOG,Alphabet Inc - Class C,NASDAQ,Stock,2014-03-27,null,Active\n"
+        + "GOOGL,Alphabet Inc - Class A,NASDAQ,Stock,2004-08-19,null,Active\n"
+        + "MSFT,Microsoft Corporation,NASDAQ,Stock,1986-03-13,null,Active\n"
+        + "GO,Grocery Outlet Holding Corp,NASDAQ,Stock,2019-06-20,null,Active\n"
+        + "AAPL,Apple Inc,NASDAQ,Stock,1980-12-12,null,Active\n");
+    directory = new SymbolDirectory(file);
+  }
+
+  private List<String> symbols(List<SymbolDirectory.Listing> listings) {
+    List<String> symbols = new ArrayList<>();
+    for (SymbolDirectory.Listing listing : listings) {
+      symbols.add(listing.getSymbol());
+    }
+    return symbols;
+  }
+
+  @Test
+  public void testSymbolPrefix() throws IOException {
+    Assert.assertEquals(List.of("GO", "GOOG", "GOOGL"), symbols(directory.search("GO", 10)));
+    Assert.assertEquals(List.of("GOOG", "GOOGL"), symbols(directory.search("goo", 10)));
+  }
+
+  @Test
+  public void testNamePrefix() throws IOException {
+    Assert.assertEquals(List.of("GOOGL", "GOOG"), symbols(directory.search("alphabet", 10)));
+    Assert.assertEquals(List.of("MSFT"), symbols(directory.search("Micro", 10)));
+  }
+
+  @Test
+  public void testSymbolMatchesComeFirst() throws IOException {
+    Assert.assertEquals(List.of("AAPL"), symbols(directory.search("a", 1)));
+    Assert.assertEquals(List.of("AAPL", "GOOGL", "GOOG"), symbols(directory.search("a", 10)));
+  }
+
+  @Test
+  public void testNoMatch() throws IOException {
+    Assert.assertEquals(0, directory.search("XYZ", 10).size());
+    Assert.assertEquals(0, directory.search("  ", 10).size());
+  }
+
+}
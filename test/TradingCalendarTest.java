@@ -0,0 +1,51 @@
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+import stockbroker.model.PriceSeries;
+import stockbroker.model.TradingCalendar;
+
+/**
+ * A class to test the trading calendar derived from a price series.
+ */
+public class TradingCalendarTest {
+
+  private TradingCalendar calendar;
+
+  @Before
+  public void setup() {
+    //thursday, friday and the monday after
+    int[] days = {(int) LocalDate.parse("2022-11-10").toEpochDay(),
+        (int) LocalDate.parse("2022-11-11").toEpochDay(),
+        (int) LocalDate.parse("2022-11-14").toEpochDay()};
+    calendar = new TradingCalendar(new PriceSeries("GOOG", days, new double[]{94.1, 96.7, 95.7}));
+  }
+
+  @Test
+  public void testOnOrAfterWeekend() {
+    Assert.assertEquals(LocalDate.parse("2022-11-14"),
+        calendar.onOrAfter(LocalDate.parse("2022-11-12")));
+    Assert.assertEquals(LocalDate.parse("2022-11-11"),
+        calendar.onOrAfter(LocalDate.parse("2022-11-11")));
+    Assert.assertNull(calendar.onOrAfter(LocalDate.parse("2022-11-15")));
+  }
+
+  @Test
+  public void testOnOrBeforeWeekend() {
+    Assert.assertEquals(LocalDate.parse("2022-11-11"),
+        calendar.onOrBefore(LocalDate.parse("2022-11-13")));
+    Assert.assertEquals(LocalDate.parse("2022-11-14"),
+        calendar.onOrBefore(LocalDate.parse("2022-11-14")));
+    Assert.assertNull(calendar.onOrBefore(LocalDate.parse("2022-11-09")));
+  }
+
+  @Test
+  public void testCovers() {
+    Assert.assertEquals(true, calendar.covers(LocalDate.parse("2022-11-12")));
+    Assert.assertEquals(false, calendar.covers(LocalDate.parse("2022-11-15")));
+    Assert.assertEquals(false, calendar.isTradingDay(LocalDate.parse("2022-11-12")));
+  }
+
+}
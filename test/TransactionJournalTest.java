@@ -0,0 +1,210 @@
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+import stockbroker.model.PortfolioLedger;
+import stockbroker.model.TransactionJournal;
+
+/**
+ * A class to test the binary transaction journal of the flexible portfolios.
+ */
+public class TransactionJournalTest {
+
+  private Path dir;
+  private TransactionJournal journal;
+
+  @Before
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("journal");
+    journal = new TransactionJournal(dir.resolve("growth.jnl"));
+  }
+
+  private List<TransactionJournal.Entry> twoTrades() {
+    return List.of(
+        new TransactionJournal.Entry("GOOG", 10.0, LocalDate.parse("2022-11-01"), false, 2.0,
+            90.5),
+        new TransactionJournal.Entry("GOOG", 4.0, LocalDate.parse("2022-11-08"), true, 1.5,
+            88.0));
+  }
+
+  @Test
+  public void testAppendAndRead() throws IOException {
+    Assert.assertEquals(false, journal.exists());
+    journal.append(twoTrades(), false);
+    journal.append(List.of(
+        new TransactionJournal.Entry("MSFT", 5.0, LocalDate.parse("2022-11-10"), false, 1.0,
+            240.0)), true);
+    List<TransactionJournal.Entry> entries = journal.read();
+    Assert.assertEquals(3, entries.size());
+    Assert.assertEquals("GOOG", entries.get(1).getSymbol());
+    Assert.assertEquals(true, entries.get(1).isSell());
+    Assert.assertEquals(1.5, entries.get(1).getCommissionFee(), 0.00);
+    Assert.assertEquals(88.0, entries.get(1).getPrice(), 0.00);
+    Assert.assertEquals(LocalDate.parse("2022-11-10"), entries.get(2).getDate());
+  }
+
+  @Test
+  public void testConcurrentAppendsKeepAllRecords() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> writers = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        //each writer has its own journal object, as a writer in another process would
+        TransactionJournal writer = new TransactionJournal(journal.getFile());
+        writers.add(executor.submit(() -> {
+          for (int j = 0; j < 25; j++) {
+            writer.append(twoTrades(), false);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> writer : writers) {
+        writer.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    Assert.assertEquals(200, journal.read().size());
+  }
+
+  @Test
+  public void testCreateOnlyOnce() throws IOException {
+    Assert.assertEquals(true, journal.create(twoTrades(), false));
+    Assert.assertEquals(false, journal.create(twoTrades(), false));
+    Assert.assertEquals(2, journal.read().size());
+  }
+
+  @Test
+  public void testReadLedger() throws IOException {
+    journal.append(twoTrades(), false);
+    PortfolioLedger ledger = journal.readLedger();
+    Assert.assertEquals(6.0, ledger.getQuantityHeld("GOOG", LocalDate.parse("2022-12-01")),
+        0.00);
+    Assert.assertEquals(true, ledger.isCurrent(journal.getFile()));
+  }
+
+  @Test
+  public void testPartialRecordDropped() throws IOException {
+    journal.append(twoTrades(), false);
+    Files.write(journal.getFile(), new byte[]{1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+    long size = Files.size(journal.getFile());
+    Assert.assertEquals(2, journal.read().size());
+    //a reader leaves the record to the writer that may still be writing it
+    Assert.assertEquals(size, Files.size(journal.getFile()));
+    journal.append(twoTrades(), false);
+    Assert.assertEquals(4, journal.read().size());
+  }
+
+  @Test(expected = IOException.class)
+  public void testCorruptRecord() throws IOException {
+    journal.append(twoTrades(), false);
+    try (FileChannel channel = FileChannel.open(journal.getFile(), StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[]{9}), 8 + 20);
+    }
+    journal.read();
+  }
+
+  @Test
+  public void testTornLastRecordDropped() throws IOException {
+    journal.append(twoTrades(), false);
+    //the last byte of the crc of the second record
+    try (FileChannel channel = FileChannel.open(journal.getFile(), StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[]{9}), Files.size(journal.getFile()) - 1);
+    }
+    Assert.assertEquals(1, journal.read().size());
+    journal.append(twoTrades(), false);
+    List<TransactionJournal.Entry> entries = journal.read();
+    Assert.assertEquals(3, entries.size());
+    Assert.assertEquals(false, entries.get(1).isSell());
+  }
+
+  @Test
+  public void testJournalWithoutHeaderNotStarted() throws IOException {
+    Files.write(journal.getFile(), new byte[0]);
+    Assert.assertEquals(false, journal.exists());
+    Assert.assertEquals(0, journal.read().size());
+
+    //records written by a first append whose header never reached the disk
+    Files.write(journal.getFile(), new byte[8 + 56]);
+    Assert.assertEquals(false, journal.exists());
+    Assert.assertEquals(true, journal.create(twoTrades(), false));
+    Assert.assertEquals(true, journal.exists());
+    Assert.assertEquals(2, journal.read().size());
+  }
+
+  @Test
+  public void testExportCsv() throws IOException {
+    journal.append(twoTrades(), false);
+    Path csv = dir.resolve("growth.csv");
+    journal.exportCsv(csv);
+    Assert.assertEquals(List.of(PortfolioLedger.CSV_HEADER,
+        "GOOG,10.0,2022-11-01,buy,2.0,90.5", "GOOG,4.0,2022-11-08,sell,1.5,88.0"),
+        Files.readAllLines(csv));
+    Assert.assertEquals(2, PortfolioLedger.read(csv).size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSymbolTooLong() {
+    new TransactionJournal.Entry("ABCDEFGHIJKLMNOPQ", 1.0, LocalDate.parse("2022-11-01"), false,
+        0.0, 1.0);
+  }
+
+  //a version 1 journal with one buy of 10 GOOG on 2022-11-01 with a commission fee of 2.0
+  private void writeVersionOne() throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(8 + 48);
+    buffer.putInt(0x53424a4c).putInt(1);
+    buffer.put(Arrays.copyOf("GOOG".getBytes(StandardCharsets.US_ASCII), 16));
+    buffer.putInt((int) LocalDate.parse("2022-11-01").toEpochDay());
+    buffer.put(new byte[4]).putDouble(10.0).putDouble(2.0).putInt(0);
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array(), 8, 44);
+    buffer.putInt((int) crc.getValue());
+    Files.write(journal.getFile(), buffer.array());
+  }
+
+  @Test
+  public void testReadVersionOne() throws IOException {
+    writeVersionOne();
+    Assert.assertEquals(1, journal.getVersion());
+    List<TransactionJournal.Entry> entries = journal.read();
+    Assert.assertEquals(1, entries.size());
+    Assert.assertEquals(10.0, entries.get(0).getQuantity(), 0.00);
+    Assert.assertEquals(true, Double.isNaN(entries.get(0).getPrice()));
+    Assert.assertEquals(true, journal.readLedger().hasMissingPrices());
+  }
+
+  @Test
+  public void testRewriteVersionOne() throws IOException {
+    writeVersionOne();
+    try {
+      journal.append(twoTrades(), false);
+      Assert.fail("appended to a version 1 journal");
+    } catch (IOException e) {
+      //expected, the journal must be rewritten first
+    }
+    journal.rewrite(List.of(journal.read().get(0).withPrice(90.5)));
+    Assert.assertEquals(2, journal.getVersion());
+    journal.append(twoTrades(), false);
+    PortfolioLedger ledger = journal.readLedger();
+    Assert.assertEquals(3, ledger.size());
+    Assert.assertEquals(false, ledger.hasMissingPrices());
+    Assert.assertEquals(1814.0, ledger.getCostBasis(LocalDate.parse("2022-11-01")), 0.001);
+  }
+
+}